@@ -9,17 +9,27 @@ file is sacred.  If any of it confuses you, throw it out and do it your way.
 lalala
 */
 import static java.lang.Math.*;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import static amazons.Piece.*;
 
 /** A Player that automatically generates moves.
  *  @author Tony_Tu
  */
-class AI extends Player {
+class AI extends Player implements Engine {
 
     /** A position magnitude indicating a win (for white if positive, black
      *  if negative). */
     private static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
+    /** A magnitude exceeded by the values of positions whose outcome
+     *  is proven from their regions (see Regions), and by no others. */
+    static final int DECIDED_VALUE = 1 << 20;
     /** A magnitude greater than a normal value. */
     private static final int INFTY = Integer.MAX_VALUE;
 
@@ -32,133 +42,1013 @@ class AI extends Player {
     /** A new AI playing PIECE under control of CONTROLLER. */
     AI(Piece piece, Controller controller) {
         super(piece, controller);
+        _tableMegabytes = DEFAULT_TABLE_MEGABYTES;
+        _replacement = TranspositionTable.Replacement.DEPTH_PREFERRED;
+        _evalMegabytes = DEFAULT_EVAL_MEGABYTES;
+        _weights = Territory.defaultWeights();
+        _timeLimit = DEFAULT_TIME_LIMIT;
+        _depthLimit = MAX_DEPTH;
+        _threads = 1;
+        _parallelism = Parallelism.ROOT_SPLIT;
+        _twoStage = false;
+        _arrowLimit = 0;
+        _pvs = true;
+        _aspiration = DEFAULT_ASPIRATION;
+    }
+
+    /** A new AI playing PIECE under control of CONTROLLER, with the same
+     *  settings as TEMPLATE. */
+    private AI(Piece piece, Controller controller, AI template) {
+        super(piece, controller);
+        _tableMegabytes = template._tableMegabytes;
+        _replacement = template._replacement;
+        _evalMegabytes = template._evalMegabytes;
+        _weights = template._weights;
+        _timeLimit = template._timeLimit;
+        _depthLimit = template._depthLimit;
+        _threads = template._threads;
+        _parallelism = template._parallelism;
+        _twoStage = template._twoStage;
+        _arrowLimit = template._arrowLimit;
+        _book = template._book;
+        _ponder = template._ponder;
+        _pvs = template._pvs;
+        _aspiration = template._aspiration;
     }
 
     @Override
     Player create(Piece piece, Controller controller) {
-        return new AI(piece, controller);
+        return new AI(piece, controller, this);
+    }
+
+    @Override
+    public Engine createEngine(Piece piece) {
+        return new AI(piece, null, this);
+    }
+
+    /** Use a transposition table of about MEGABYTES megabytes, replacing
+     *  entries according to POLICY. */
+    void setTableSize(int megabytes,
+                      TranspositionTable.Replacement policy) {
+        _tableMegabytes = megabytes;
+        _replacement = policy;
+        _table = null;
+    }
+
+    /** Cache static evaluations in a cache of about MEGABYTES megabytes,
+     *  or not at all if MEGABYTES is 0. */
+    void setEvalCacheSize(int megabytes) {
+        _evalMegabytes = max(0, megabytes);
+        _evalCache = null;
+    }
+
+    /** Return the numbers of hits (if HITS) or misses (otherwise) in my
+     *  evaluation cache so far, or 0 if I have none. */
+    long evalCacheCount(boolean hits) {
+        if (_evalCache == null) {
+            return 0;
+        }
+        return hits ? _evalCache.hits() : _evalCache.misses();
+    }
+
+    /** Evaluate positions with a territory evaluator using WEIGHTS (see
+     *  Territory). */
+    void setWeights(int[] weights) {
+        _weights = weights.clone();
+        _searchers = null;
+        _evalCache = null;
+    }
+
+    /** Spend about MILLIS milliseconds choosing each move. */
+    void setTimeLimit(long millis) {
+        _timeLimit = millis;
+    }
+
+    /** Search no deeper than DEPTH levels (1 <= DEPTH <= MAX_DEPTH),
+     *  however much time remains. */
+    void setDepthLimit(int depth) {
+        _depthLimit = max(1, min(depth, MAX_DEPTH));
+    }
+
+    /** Iff TWOSTAGE, generate each node's queen moves first, and the
+     *  spear throws following each queen move only when the search
+     *  reaches it, trying at most ARROWLIMIT throws per queen move below
+     *  the root (or all of them if ARROWLIMIT is 0).  Otherwise, generate
+     *  all moves at once. */
+    void setTwoStage(boolean twoStage, int arrowLimit) {
+        _twoStage = twoStage;
+        _arrowLimit = max(0, arrowLimit);
+    }
+
+    /** Iff PVS, search each node's moves after the first with null
+     *  windows first (principal variation search).  Begin each
+     *  iteration's search at the root within ASPIRATION of the previous
+     *  iteration's value (an aspiration window), or with a full window
+     *  if ASPIRATION is 0.  Only the root splitting of setThreads
+     *  ignores aspiration windows. */
+    void setPrincipalVariation(boolean pvs, int aspiration) {
+        _pvs = pvs;
+        _aspiration = max(0, aspiration);
+    }
+
+    @Override
+    public long nodeCount() {
+        long total = 0;
+        if (_searchers != null) {
+            for (Searcher searcher : _searchers) {
+                total += searcher._nodes;
+            }
+        }
+        return total;
+    }
+
+    /** Play the moves in BOOK (null for none) whenever it has one for the
+     *  current position. */
+    void setOpeningBook(OpeningBook book) {
+        _book = book;
+    }
+
+    /** Return the value (positive if it favors white) found by the
+     *  search for the move last returned by findMove, or 0 if that move
+     *  was not found by searching. */
+    int lastScore() {
+        return _lastScore;
+    }
+
+    /** Ways of using more than one search thread. */
+    enum Parallelism {
+        /** Divide the moves at the root among the threads. */
+        ROOT_SPLIT,
+        /** Let helper threads search the whole tree independently,
+         *  communicating only through the transposition table. */
+        LAZY_SMP
+    }
+
+    /** Search using THREADS >= 1 threads, dividing the work as indicated
+     *  by PARALLELISM. */
+    void setThreads(int threads, Parallelism parallelism) {
+        _threads = max(1, threads);
+        _parallelism = parallelism;
+        _searchers = null;
+        _pool = null;
+    }
+
+    /** Iff PONDER, keep searching in the background after each of my
+     *  moves while my opponent chooses a reply (see startPondering). */
+    void setPondering(boolean ponder) {
+        _ponder = ponder;
     }
 
     @Override
     String myMove() {
+        stop();
         Move move = findMove();
         _controller.reportMove(move);
+        if (_ponder) {
+            startPondering(move.code());
+        }
         return move.toString();
     }
 
+    /** Stops pondering once my opponent has replied or the game is
+     *  over. */
+    @Override
+    void notifyMove(Move move) {
+        if (board().turn() == _myPiece || board().winner() != null) {
+            stop();
+        }
+    }
+
+    @Override
+    void stop() {
+        if (_ponderer != null) {
+            _aborted = true;
+            try {
+                _ponderer.join();
+            } catch (InterruptedException excp) {
+                throw new IllegalStateException(excp);
+            }
+            _ponderer = null;
+        }
+    }
+
+    /** Return true iff I am pondering (see startPondering). */
+    boolean pondering() {
+        return _ponderer != null && _ponderer.isAlive();
+    }
+
+    /** Start a background thread that searches the position after my
+     *  encoded move MOVE from the current position, from my opponent's
+     *  point of view, to ever greater depths until stopped.  My next
+     *  search then finds the results for the positions after my
+     *  opponent's likely replies in my transposition table.  Uses only
+     *  my first searcher.  Does nothing if the game is then over or no
+     *  region (see Regions) is contested, since my next move will not
+     *  need a search. */
+    private void startPondering(int move) {
+        Searcher searcher = _searchers[0];
+        Board board = searcher._board;
+        board.copy(board());
+        board.makeMove(move);
+        if (board.winner() != null) {
+            return;
+        }
+        _regions.analyze(board);
+        if (_regions.contestedCount() == 0) {
+            return;
+        }
+        setFocus();
+        int sense = _myPiece == WHITE ? -1 : 1;
+        _deadline = Long.MAX_VALUE;
+        _aborted = false;
+        _ponderer = new Thread(() -> {
+            for (_iteration = 1; _iteration <= _depthLimit && !_aborted;
+                 _iteration += 1) {
+                searcher.findMove(board, _iteration, false, sense,
+                                  -INFTY, INFTY);
+            }
+        });
+        _ponderer.setDaemon(true);
+        _ponderer.start();
+    }
+
+    /** Limit searches to moves in the contested regions of the position
+     *  last analyzed by _regions (see focus), if any region belongs to
+     *  one side. */
+    private void setFocus() {
+        boolean[] focus = null;
+        if (_regions.ownedCount() > 0) {
+            focus = new boolean[SQUARES];
+            for (int k = 0; k < SQUARES; k += 1) {
+                focus[k] = _regions.contested(k);
+            }
+        }
+        _focus = focus;
+    }
+
+    /** Create my searchers, unless they exist. */
+    private void makeSearchers() {
+        if (_searchers == null) {
+            _searchers = new Searcher[_threads];
+            for (int i = 0; i < _threads; i += 1) {
+                _searchers[i] = new Searcher();
+            }
+        }
+    }
+
+    /** Return the static value (positive if it favors white) that my
+     *  searches give POSITION when they reach it at full depth, computed
+     *  afresh rather than taken from my evaluation cache. */
+    int staticScore(Board position) {
+        makeSearchers();
+        Searcher searcher = _searchers[0];
+        if (position.winner() != null) {
+            return searcher.staticScore(position);
+        }
+        return searcher.evaluate(position);
+    }
+
     /** Return a move for me from the current position, assuming there
      *  is a move. */
     private Move findMove() {
-        Board b = new Board(board());
-        if (_myPiece == WHITE) {
-            findMove(b, maxDepth(b), true, 1, -INFTY, INFTY);
-        } else {
-            findMove(b, maxDepth(b), true, -1, -INFTY, INFTY);
-        }
-        return _lastFoundMove;
-    }
-
-    /** The move found by the last call to one of the ...FindMove methods
-     *  below. */
-    private Move _lastFoundMove;
-
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _lastFoundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value > BETA if SENSE==1,
-     *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     *  DEPTH levels.  Searching at level 0 simply returns a static estimate
-     *  of the board value and does not set _lastMoveFound. */
-    private int findMove(Board board, int depth, boolean saveMove, int sense,
-                         int alpha, int beta) {
-        if (depth == 0 || board.winner() != null) {
-            return staticScore(board);
-        }
-        Move bestmove = Move.mv("a1 b1 c1");
-        int bestScore;
-        if (sense == 1) {
-            Iterator<amazons.Move> m = board.legalMoves(WHITE);
-            bestScore = -INFTY;
-            while (m.hasNext()) {
-
-                Board temp = new Board(board);
-                Move curr = m.next();
-                temp.makeMove(curr);
-                int resp = findMove(temp, depth - 1, false, -1, alpha, beta);
-                if (resp >= bestScore) {
-                    bestScore = resp;
-                    bestmove = curr;
-                    alpha = max(alpha, resp);
-                    if (alpha >= beta) {
-                        break;
+        return findMove(board());
+    }
+
+    /** Return a move for me from POSITION, assuming that it is my turn
+     *  and there is a move.  Uses the move from my opening book, if it
+     *  has one for POSITION.  Otherwise, searches to depth 1, 2, ... in
+     *  turn until the time limit expires, the depth limit is reached, or
+     *  the game's outcome is found, and returns the move chosen by the
+     *  deepest search that finished.  If even the search to depth 1 does
+     *  not finish, returns the transposition table's move for POSITION,
+     *  if any, or else the first move generated.  If no region (see
+     *  Regions) is contested, just fills my own regions instead; if some
+     *  are, searches moves in contested regions plus one tempo move
+     *  (see focus) at each node. */
+    @Override
+    public Move findMove(Board position) {
+        _deadline = System.nanoTime() + _timeLimit * NANOS_PER_MILLI;
+        _lastScore = 0;
+        if (_table == null) {
+            _table = new TranspositionTable(_tableMegabytes, _replacement);
+        }
+        if (_evalCache == null && _evalMegabytes > 0) {
+            _evalCache = new EvalCache(_evalMegabytes);
+        }
+        makeSearchers();
+        if (_book != null) {
+            int move = _book.move(position.hash());
+            if (move != 0 && position.isLegal(move)) {
+                return Move.mv(move);
+            }
+        }
+        for (Searcher searcher : _searchers) {
+            searcher._board.copy(position);
+            searcher.ageHistory();
+        }
+        _regions.analyze(position);
+        if (_regions.contestedCount() == 0) {
+            return Move.mv(fillMove());
+        }
+        setFocus();
+        _table.newSearch();
+        _aborted = false;
+        int sense = _myPiece == WHITE ? 1 : -1;
+        List<Future<Void>> helpers = null;
+        if (_threads > 1 && _parallelism == Parallelism.LAZY_SMP) {
+            helpers = startHelpers(sense);
+        }
+        int best = fallbackMove(position), guess = 0;
+        for (_iteration = 1; _iteration <= _depthLimit; _iteration += 1) {
+            int score;
+            if (_threads == 1 || _parallelism == Parallelism.LAZY_SMP) {
+                score = aspirate(_iteration, sense, guess);
+            } else {
+                score = splitRoot(_iteration, sense);
+            }
+            if (_aborted) {
+                break;
+            }
+            best = _lastFoundMove;
+            _lastScore = guess = score;
+            if (abs(score) == WINNING_VALUE
+                || System.nanoTime() >= _deadline) {
+                break;
+            }
+        }
+        if (helpers != null) {
+            _aborted = true;
+            join(helpers);
+        }
+        return Move.mv(best);
+    }
+
+    /** Return the encoded move to play from POSITION if no search
+     *  finishes: the move stored for it in the transposition table (say
+     *  by pondering), if that is legal, or else the first move in the
+     *  current search's focus. */
+    private int fallbackMove(Board position) {
+        long entry = _table.probe(position.hash());
+        if (entry != TranspositionTable.NO_ENTRY) {
+            int move = TranspositionTable.move(entry);
+            if (move != 0 && position.isLegal(move)) {
+                return move;
+            }
+        }
+        focus(_rootMoves, 0, position.legalMoves(_myPiece, _rootMoves));
+        return _rootMoves[0];
+    }
+
+    /** Search the current position to DEPTH levels with my first
+     *  searcher, as for Searcher.findMove with SENSE and SAVEMOVE true.
+     *  Unless this is the first iteration, GUESS (the value found by the
+     *  previous one) is large, or aspiration windows are off, first
+     *  searches only for values within _aspiration of GUESS, searching
+     *  again on the side where the window failed if the value turns out
+     *  to lie outside it. */
+    private int aspirate(int depth, int sense, int guess) {
+        Searcher searcher = _searchers[0];
+        if (_aspiration == 0 || depth == 1 || abs(guess) >= DECIDED_VALUE) {
+            return searcher.findMove(searcher._board, depth, true, sense,
+                                     -INFTY, INFTY);
+        }
+        int alpha = guess - _aspiration, beta = guess + _aspiration;
+        int score = searcher.findMove(searcher._board, depth, true, sense,
+                                      alpha, beta);
+        if (!_aborted && (score <= alpha || score >= beta)) {
+            score = searcher.findMove(searcher._board, depth, true, sense,
+                                      score <= alpha ? -INFTY : alpha,
+                                      score >= beta ? INFTY : beta);
+        }
+        return score;
+    }
+
+    /** Return the encoded move for me that leaves me able to make the
+     *  most moves afterwards (see Regions.exactFillable), assuming that
+     *  no region of the current position is contested.  My opponent's
+     *  moves do not matter then, since they happen in other regions.
+     *  If the time limit runs out first, instead chooses the move that
+     *  leaves the most empty squares in my regions (see
+     *  Regions.fillable). */
+    private int fillMove() {
+        Board board = _searchers[0]._board;
+        int n = board.legalMoves(_myPiece, _rootMoves);
+        int best = fillMove(board, n, true);
+        if (best == 0) {
+            best = fillMove(board, n, false);
+        }
+        return best;
+    }
+
+    /** Return the move among _rootMoves[0 .. N-1] on BOARD that leaves
+     *  me the most moves afterwards, counted exactly if EXACT, and as an
+     *  upper bound otherwise.  Returns 0 if EXACT and the time limit
+     *  runs out first. */
+    private int fillMove(Board board, int n, boolean exact) {
+        int best = _rootMoves[0], most = -1;
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(_rootMoves[i]);
+            _regions.analyze(board);
+            int left = !exact ? _regions.fillable(_myPiece)
+                : _regions.exactFillable(board, _myPiece, _deadline);
+            board.undo();
+            if (left < 0) {
+                return 0;
+            }
+            if (left > most) {
+                best = _rootMoves[i];
+                most = left;
+            }
+        }
+        return best;
+    }
+
+    /** If the current search is limited to contested regions and
+     *  MOVES[FIRST .. END-1] contains encoded moves that start in them,
+     *  remove all moves that start elsewhere but the first, keeping the
+     *  rest in order.  Return the new end of the moves.  The move kept
+     *  is a tempo move: it only uses up one square of the mover's own
+     *  regions, as any other such move would, but being able to pass
+     *  on the contested regions decides zugzwang positions. */
+    private int focus(int[] moves, int first, int end) {
+        boolean[] focus = _focus;
+        if (focus == null) {
+            return end;
+        }
+        int kept = first, tempo = 0;
+        for (int i = first; i < end; i += 1) {
+            if (focus[Move.from(moves[i])]) {
+                moves[kept] = moves[i];
+                kept += 1;
+            } else if (tempo == 0) {
+                tempo = moves[i];
+            }
+        }
+        if (kept == first) {
+            return end;
+        }
+        if (tempo != 0) {
+            moves[kept] = tempo;
+            kept += 1;
+        }
+        return kept;
+    }
+
+    /** Start all my searchers but the first searching the current
+     *  position for SENSE (as for Searcher.findMove) in my pool, and
+     *  return their Futures.  Each deepens its search one level at a
+     *  time until _aborted is set, with odd-numbered helpers starting a
+     *  level deeper than even-numbered ones, so that the helpers fill
+     *  the transposition table with results the main search (run by the
+     *  first searcher) will want soon. */
+    private List<Future<Void>> startHelpers(int sense) {
+        if (_pool == null) {
+            _pool = new ForkJoinPool(_threads);
+        }
+        List<Future<Void>> helpers = new ArrayList<>();
+        for (int i = 1; i < _threads; i += 1) {
+            Searcher helper = _searchers[i];
+            int first = 1 + i % 2;
+            helpers.add(_pool.submit(() -> {
+                helper.help(first, sense);
+                return null;
+            }));
+        }
+        return helpers;
+    }
+
+    /** Wait for all of TASKS to finish. */
+    private static void join(List<Future<Void>> tasks) {
+        try {
+            for (Future<Void> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    /** Search the current position to DEPTH levels, as for
+     *  Searcher.findMove with SENSE and SAVEMOVE true, dividing the root
+     *  moves among my searchers.  The first root move (the best one from
+     *  the previous iteration, if any) is searched alone to establish a
+     *  bound; the rest are then taken in turn by whichever thread is
+     *  free.  All threads share the best score found so far at the root
+     *  as their alpha (or beta) bound, so the result is the same score
+     *  that a single thread would find. */
+    private int splitRoot(int depth, int sense) {
+        Board board = _searchers[0]._board;
+        int n = focus(_rootMoves, 0,
+                      board.legalMoves(sense == 1 ? WHITE : BLACK,
+                                       _rootMoves));
+        long entry = _table.probe(board.hash());
+        if (entry != TranspositionTable.NO_ENTRY) {
+            moveToFront(_rootMoves, n, TranspositionTable.move(entry));
+        }
+        for (Searcher searcher : _searchers) {
+            searcher._rootMove = 0;
+        }
+        AtomicInteger bound = new AtomicInteger(-INFTY);
+        AtomicInteger next = new AtomicInteger(0);
+        _searchers[0].searchRoot(depth, sense, bound, next, 1);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Searcher searcher : _searchers) {
+            tasks.add(() -> {
+                searcher.searchRoot(depth, sense, bound, next, n);
+                return null;
+            });
+        }
+        if (_pool == null) {
+            _pool = new ForkJoinPool(_threads);
+        }
+        join(_pool.invokeAll(tasks));
+        if (_aborted) {
+            return 0;
+        }
+        int bestScore = -INFTY, bestMove = 0;
+        for (Searcher searcher : _searchers) {
+            if (searcher._rootMove != 0 && searcher._rootScore > bestScore) {
+                bestScore = searcher._rootScore;
+                bestMove = searcher._rootMove;
+            }
+        }
+        _lastFoundMove = bestMove;
+        _table.store(board.hash(), depth, TranspositionTable.EXACT,
+                     sense * bestScore, bestMove);
+        return sense * bestScore;
+    }
+
+    /** If MOVE is among the first N entries of MOVES, move it to the
+     *  front, shifting the entries before it back by one. */
+    private static void moveToFront(int[] moves, int n, int move) {
+        for (int i = 0; i < n; i += 1) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /** The encoding of the move found by the last call to one of the
+     *  ...FindMove methods below. */
+    private volatile int _lastFoundMove;
+
+    /** The state of one thread's search: its own copy of the board being
+     *  searched and its own move buffers.  The transposition table, the
+     *  clock, and the abort flag are shared through the enclosing AI. */
+    private class Searcher {
+
+        /** Search the root moves _rootMoves[k], for k taken in turn from
+         *  NEXT until it reaches N, to DEPTH levels on my board, where
+         *  SENSE is as for findMove.  BOUND holds SENSE times the best
+         *  score found so far by any thread, and is used as the search
+         *  window's alpha (SENSE == 1) or beta (SENSE == -1).  Records my
+         *  best move and SENSE times its score in _rootMove and
+         *  _rootScore.  Since the search is fail-soft, a move whose
+         *  result does not exceed the bound it was searched with has
+         *  only an upper bound on its value, and is not recorded unless
+         *  the bound was open.  So _rootMove stays 0 if I find no move
+         *  better than one already found. */
+        void searchRoot(int depth, int sense, AtomicInteger bound,
+                        AtomicInteger next, int n) {
+            for (int k = next.getAndIncrement(); k < n;
+                 k = next.getAndIncrement()) {
+                int move = _rootMoves[k];
+                int known = bound.get();
+                _board.makeMove(move);
+                int resp;
+                if (sense == 1) {
+                    resp = findMove(_board, depth - 1, false, -1,
+                                    known, INFTY);
+                } else {
+                    resp = -findMove(_board, depth - 1, false, 1,
+                                     -INFTY, -known);
+                }
+                _board.undo();
+                if (_aborted) {
+                    return;
+                }
+                if ((known == -INFTY || resp > known)
+                    && (_rootMove == 0 || resp > _rootScore)) {
+                    _rootScore = resp;
+                    _rootMove = move;
+                }
+                while (resp > known && !bound.compareAndSet(known, resp)) {
+                    known = bound.get();
+                }
+            }
+        }
+
+        /** Search my board for SENSE (as for findMove) to depths FIRST,
+         *  FIRST + 1, ..., up to the depth limit, until _aborted is set,
+         *  leaving the results only in the transposition table. */
+        void help(int first, int sense) {
+            for (int depth = first; depth <= _depthLimit && !_aborted;
+                 depth += 1) {
+                findMove(_board, depth, false, sense, -INFTY, INFTY);
+            }
+        }
+
+        /** Return true iff the current search should be abandoned because
+         *  its time is up, on reaching a node to be searched to DEPTH
+         *  levels.  Checks the clock at every node with DEPTH > 0, which
+         *  costs little beside generating its moves, but only every
+         *  CHECK_INTERVAL calls at the leaves. */
+        private boolean timeUp(int depth) {
+            _nodes += 1;
+            if (!_aborted
+                && (depth > 0 || (_nodes & (CHECK_INTERVAL - 1)) == 0)
+                && System.nanoTime() >= _deadline) {
+                _aborted = true;
+            }
+            return _aborted;
+        }
+
+        /** Find a move from position BOARD and return its value, recording
+         *  the move found in _lastFoundMove iff SAVEMOVE. The move
+         *  should have maximal value or have value > BETA if SENSE==1,
+         *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
+         *  DEPTH levels.  Searching at level 0 simply returns a static
+         *  estimate of the board value and does not set _lastMoveFound.
+         *  Children are searched by making and then undoing each move on
+         *  BOARD itself, which is left as it was found.  Results are
+         *  recorded in and, except at the root, reused from the
+         *  transposition table.  If time runs out, sets _aborted and
+         *  returns a meaningless value. */
+        int findMove(Board board, int depth, boolean saveMove, int sense,
+                     int alpha, int beta) {
+            if (timeUp(depth)) {
+                return 0;
+            }
+            if (depth == 0 || board.winner() != null) {
+                return staticScore(board);
+            }
+            long key = board.hash();
+            long entry = _table.probe(key);
+            if (!saveMove && entry != TranspositionTable.NO_ENTRY
+                && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER:
+                    alpha = max(alpha, score);
+                    break;
+                default:
+                    beta = min(beta, score);
+                    break;
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+            Piece side = sense == 1 ? WHITE : BLACK;
+            int[] moves = moveBuffer(depth);
+            int[] killers = _killers[board.numMoves()];
+            int hashMove = entry == TranspositionTable.NO_ENTRY
+                ? 0 : TranspositionTable.move(entry);
+            int groups = 1;
+            if (_twoStage) {
+                groups = focus(moves, 0, board.queenMoves(side, moves));
+                orderMoves(moves, 0, groups, hashMove, killers,
+                           QUEEN_MOVE_MASK);
+            }
+            int windowAlpha = alpha, windowBeta = beta;
+            int bestmove = 0;
+            int bestScore = sense == 1 ? -INFTY : INFTY;
+        search:
+            for (int g = 0; g < groups; g += 1) {
+                int first, end;
+                if (_twoStage) {
+                    first = groups;
+                    end = board.spearThrows(moves[g], moves, first);
+                    orderMoves(moves, first, end, hashMove, killers, -1);
+                    if (!saveMove && _arrowLimit > 0) {
+                        end = min(end, first + _arrowLimit);
                     }
+                } else {
+                    first = 0;
+                    end = focus(moves, first, board.legalMoves(side, moves));
+                    orderMoves(moves, first, end, hashMove, killers, -1);
                 }
+                for (int i = first; i < end; i += 1) {
+                    int curr = moves[i];
+                    board.makeMove(curr);
+                    int resp;
+                    if (bestmove == 0 || !_pvs || depth == 1) {
+                        resp = findMove(board, depth - 1, false, -sense,
+                                        alpha, beta);
+                    } else {
+                        resp = scout(board, depth - 1, sense, alpha, beta);
+                    }
+                    board.undo();
+                    if (_aborted) {
+                        return 0;
+                    }
+                    if (sense == 1 ? resp > bestScore : resp < bestScore) {
+                        bestScore = resp;
+                        bestmove = curr;
+                        if (sense == 1) {
+                            alpha = max(alpha, resp);
+                        } else {
+                            beta = min(beta, resp);
+                        }
+                        if (alpha >= beta) {
+                            recordCutoff(curr, depth, killers);
+                            break search;
+                        }
+                    }
+                }
+            }
+            if (saveMove) {
+                _lastFoundMove = bestmove;
             }
-        } else {
-            Iterator<amazons.Move> m = board.legalMoves(BLACK);
-            bestScore = INFTY;
-            while (m.hasNext()) {
-                Board temp = new Board(board);
-                Move curr = m.next();
-                temp.makeMove(curr);
-                int resp = findMove(temp, depth - 1, false, 1, alpha, beta);
-                if (resp <= bestScore) {
-                    bestScore = resp;
-                    bestmove = curr;
-                    beta = min(beta, resp);
-                    if (alpha >= beta) {
-                        break;
+            int bound;
+            if (bestScore <= windowAlpha) {
+                bound = TranspositionTable.UPPER;
+            } else if (bestScore >= windowBeta) {
+                bound = TranspositionTable.LOWER;
+            } else {
+                bound = TranspositionTable.EXACT;
+            }
+            _table.store(key, depth, bound, bestScore, bestmove);
+            return bestScore;
+        }
+
+        /** Return the value of BOARD, on which SENSE's opponent is to
+         *  move, searched to DEPTH levels within the window ALPHA, BETA as
+         *  for findMove.  First searches with a null window just above
+         *  ALPHA (SENSE == 1) or just below BETA (SENSE == -1), which only
+         *  tells whether the value can improve on that bound, and searches
+         *  again with the full window only if it can. */
+        private int scout(Board board, int depth, int sense, int alpha,
+                          int beta) {
+            int resp;
+            if (sense == 1) {
+                resp = findMove(board, depth, false, -1, alpha, alpha + 1);
+                if (resp > alpha && resp < beta && !_aborted) {
+                    resp = findMove(board, depth, false, -1, alpha, beta);
+                }
+            } else {
+                resp = findMove(board, depth, false, 1, beta - 1, beta);
+                if (resp < beta && resp > alpha && !_aborted) {
+                    resp = findMove(board, depth, false, 1, alpha, beta);
+                }
+            }
+            return resp;
+        }
+
+        /** Sort the encoded moves MOVES[FIRST .. END-1] so that the one
+         *  matching HASHMOVE (an encoded move or 0) comes first, then
+         *  those matching the moves in KILLERS in order, then the rest in
+         *  decreasing order of their history scores.  Moves match when
+         *  they agree in the bits selected by MASK, which is -1 to compare
+         *  whole moves or QUEEN_MOVE_MASK to compare only queen moves (in
+         *  which case the spear history is ignored). */
+        private void orderMoves(int[] moves, int first, int end,
+                                int hashMove, int[] killers, int mask) {
+            long[] keys = _sortKeys;
+            for (int i = first; i < end; i += 1) {
+                int move = moves[i];
+                int key = move & mask;
+                int priority;
+                if (key == (hashMove & mask)) {
+                    priority = HASH_MOVE_PRIORITY;
+                } else if (key == (killers[0] & mask)) {
+                    priority = KILLER_PRIORITY + 1;
+                } else if (key == (killers[1] & mask)) {
+                    priority = KILLER_PRIORITY;
+                } else {
+                    int to = Move.to(move);
+                    priority = _moveHistory[Move.from(move) * SQUARES + to];
+                    if (mask == -1) {
+                        priority +=
+                            _spearHistory[to * SQUARES + Move.spear(move)];
                     }
                 }
+                keys[i] = ((long) -priority << Integer.SIZE) | move;
+            }
+            Arrays.sort(keys, first, end);
+            for (int i = first; i < end; i += 1) {
+                moves[i] = (int) keys[i];
             }
         }
-        if (saveMove) {
-            _lastFoundMove = bestmove;
+
+        /** Note that MOVE caused a cutoff in a search to DEPTH levels,
+         *  where KILLERS holds the killer moves for its ply. */
+        private void recordCutoff(int move, int depth, int[] killers) {
+            if (killers[0] != move) {
+                killers[1] = killers[0];
+                killers[0] = move;
+            }
+            int to = Move.to(move);
+            int bonus = depth * depth;
+            int a = _moveHistory[Move.from(move) * SQUARES + to] += bonus;
+            int b = _spearHistory[to * SQUARES + Move.spear(move)] += bonus;
+            if (max(a, b) > MAX_HISTORY) {
+                ageHistory();
+            }
         }
-        return bestScore;
-    }
 
-    /** Return a heuristically determined maximum search depth
-     *  based on characteristics of BOARD. */
-    private int maxDepth(Board board) {
-        int N = board.numMoves();
-        int coefficient2 = 10 * 2,
-                coefficient3 = 5 * 11,
-                coefficient4 = 7 * 10 + 5,
-                coefficient5 = 8 * 10 + 5;
-        if (N > coefficient5) {
-            return 5;
-        } else if (N > coefficient4) {
-            return 4;
-        } else if (N > coefficient3) {
-            return 3;
-        } else if (N > coefficient2) {
-            return 2;
+        /** Halve all history scores, so that recent cutoffs count for
+         *  more than old ones. */
+        void ageHistory() {
+            for (int i = 0; i < _moveHistory.length; i += 1) {
+                _moveHistory[i] >>= 1;
+                _spearHistory[i] >>= 1;
+            }
         }
-        return 1;
-    }
 
+        /** Return the move buffer for searches with DEPTH levels
+         *  remaining, creating it if needed.  Each depth has its own
+         *  buffer, so that a search does not overwrite the moves of its
+         *  callers. */
+        private int[] moveBuffer(int depth) {
+            if (depth >= _moveBuffers.length) {
+                _moveBuffers = Arrays.copyOf(_moveBuffers, depth + 1);
+            }
+            if (_moveBuffers[depth] == null) {
+                _moveBuffers[depth] = new int[Board.MAX_MOVES];
+            }
+            return _moveBuffers[depth];
+        }
 
-    /** Return a heuristic value for BOARD. */
-    private int staticScore(Board board) {
-        Piece winner = board.winner();
-        if (winner == WHITE) {
-            return WINNING_VALUE;
-        } else if (winner == BLACK) {
-            return -WINNING_VALUE;
-        } else {
-            int a = 0;
-            Iterator<amazons.Move> m = board.legalMoves(WHITE);
-            while (m.hasNext()) {
-                a++;
-                m.next();
+        /** Return a heuristic value for BOARD: its territory score (see
+         *  Territory) unless the game is over, or no region (see Regions)
+         *  is contested and bounds on the numbers of moves each side can
+         *  make there prove who wins (see evaluate).  Values of
+         *  unfinished games are taken from and recorded in my evaluation
+         *  cache, if any. */
+        private int staticScore(Board board) {
+            Piece winner = board.winner();
+            if (winner == WHITE) {
+                return WINNING_VALUE;
+            } else if (winner == BLACK) {
+                return -WINNING_VALUE;
+            }
+            EvalCache cache = _evalCache;
+            if (cache == null) {
+                return evaluate(board);
             }
-            int b = 0;
-            Iterator<amazons.Move> x = board.legalMoves(WHITE);
-            while (m.hasNext()) {
-                b++;
-                x.hasNext();
+            long key = board.hash();
+            long entry = cache.probe(key);
+            if (entry != EvalCache.NO_ENTRY) {
+                return EvalCache.score(entry);
             }
-            return a - b;
+            int score = evaluate(board);
+            cache.store(key, score);
+            return score;
         }
+
+        /** Return the value staticScore gives BOARD, an unfinished game,
+         *  computed from scratch.  Once no region is contested, white
+         *  wins iff it can make more moves in its own regions than black
+         *  (or as many, if black is to move).  If the moves white is sure
+         *  of (Regions.surelyFillable) already beat the most black could
+         *  make (Regions.fillable), or the reverse, the value exceeds
+         *  DECIDED_VALUE in magnitude, with the winner's sign.
+         *  Otherwise, it is just the territory score. */
+        private int evaluate(Board board) {
+            _regions.analyze(board);
+            if (_regions.contestedCount() > 0) {
+                return _territory.score(board);
+            }
+            int white = _regions.fillable(WHITE),
+                black = _regions.fillable(BLACK),
+                tempo = board.turn() == BLACK ? 1 : 0,
+                margin = white - black + tempo;
+            if (margin > 0) {
+                if (_regions.surelyFillable(board, WHITE) - black + tempo
+                    > 0) {
+                    return DECIDED_VALUE + margin;
+                }
+            } else if (white - _regions.surelyFillable(board, BLACK)
+                       + tempo <= 0) {
+                return -DECIDED_VALUE + margin - 1;
+            }
+            return _territory.score(board);
+        }
+
+        /** The board I search. */
+        private final Board _board = new Board();
+        /** Move buffers for each remaining search depth (see
+         *  moveBuffer). */
+        private int[][] _moveBuffers = new int[0][];
+        /** The two most recent moves to cause cutoffs at each ply, indexed
+         *  by the number of moves made in the game so far.  Since each
+         *  move fills a square, no game has more than SQUARES moves. */
+        private final int[][] _killers = new int[SQUARES + 1][2];
+        /** History scores for queen moves, indexed by from * SQUARES + to.
+         *  Each cutoff adds the square of its search depth. */
+        private final int[] _moveHistory = new int[SQUARES * SQUARES];
+        /** History scores for spear throws, indexed by
+         *  to * SQUARES + spear, kept like _moveHistory. */
+        private final int[] _spearHistory = new int[SQUARES * SQUARES];
+        /** My static evaluator. */
+        private final Territory _territory = new Territory(_weights);
+        /** Region analysis for staticScore. */
+        private final Regions _regions = new Regions();
+        /** Scratch space for orderMoves. */
+        private final long[] _sortKeys = new long[Board.MAX_MOVES];
+        /** Number of nodes I have searched. */
+        private long _nodes;
+        /** My best root move from the last call to searchRoot, or 0. */
+        private int _rootMove;
+        /** SENSE times the score of _rootMove. */
+        private int _rootScore;
     }
+
+    /** Default size of the transposition table in megabytes. */
+    static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    /** Size of my transposition table in megabytes. */
+    private int _tableMegabytes;
+    /** Replacement policy for my transposition table. */
+    private TranspositionTable.Replacement _replacement;
+    /** My transposition table, created when first needed. */
+    private TranspositionTable _table;
+
+    /** Default size of the evaluation cache in megabytes. */
+    static final int DEFAULT_EVAL_MEGABYTES = 4;
+
+    /** Size of my evaluation cache in megabytes, or 0 for none. */
+    private int _evalMegabytes;
+    /** My evaluation cache, created when first needed, or null if
+     *  none. */
+    private EvalCache _evalCache;
+
+    /** Default time limit per move, in milliseconds. */
+    static final long DEFAULT_TIME_LIMIT = 1000;
+    /** Default half-width of aspiration windows. */
+    static final int DEFAULT_ASPIRATION = 32;
+    /** Deepest search ever attempted. */
+    static final int MAX_DEPTH = 60;
+    /** Number of squares on a board. */
+    private static final int SQUARES = Board.SIZE * Board.SIZE;
+    /** Mask selecting the queen move (from and to squares) from an
+     *  encoded move. */
+    private static final int QUEEN_MOVE_MASK = Move.encode(127, 127, 0);
+    /** Move-ordering priority of the transposition table's move. */
+    private static final int HASH_MOVE_PRIORITY = 1 << 30;
+    /** Move-ordering priority of the older killer move (the newer one
+     *  gets one more). */
+    private static final int KILLER_PRIORITY = 1 << 29;
+    /** History scores are halved when one would exceed this, keeping
+     *  the sum of two below KILLER_PRIORITY. */
+    private static final int MAX_HISTORY = 1 << 27;
+    /** Number of leaves searched between checks of the clock. */
+    private static final int CHECK_INTERVAL = 1 << 6;
+    /** Nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /** Weights of my territory evaluator. */
+    private int[] _weights;
+    /** Time limit per move in milliseconds. */
+    private long _timeLimit;
+    /** Maximum search depth. */
+    private int _depthLimit;
+    /** Number of search threads. */
+    private int _threads;
+    /** How work is divided among threads when _threads > 1. */
+    private Parallelism _parallelism;
+    /** True iff queen moves and spear throws are generated separately
+     *  (see setTwoStage). */
+    private boolean _twoStage;
+    /** Greatest number of spear throws searched after each queen move
+     *  below the root in a two-stage search, or 0 for no limit. */
+    private int _arrowLimit;
+    /** True iff I use principal variation search. */
+    private boolean _pvs;
+    /** Half-width of aspiration windows, or 0 for none. */
+    private int _aspiration;
+    /** True iff I search while my opponent is thinking. */
+    private boolean _ponder;
+    /** The thread searching while my opponent thinks, or null if
+     *  none. */
+    private Thread _ponderer;
+    /** My opening book, or null if none. */
+    private OpeningBook _book;
+    /** Value returned by lastScore. */
+    private int _lastScore;
+    /** One Searcher per thread, created when first needed. */
+    private Searcher[] _searchers;
+    /** Pool running my searchers when _threads > 1, created when first
+     *  needed. */
+    private ForkJoinPool _pool;
+    /** Region analysis of the current position. */
+    private final Regions _regions = new Regions();
+    /** If the current search is limited to moves in contested regions
+     *  (and a tempo move, see focus), true exactly for the squares of
+     *  those regions; otherwise null. */
+    private volatile boolean[] _focus;
+    /** Root moves being divided among threads by splitRoot. */
+    private final int[] _rootMoves = new int[Board.MAX_MOVES];
+    /** Value of System.nanoTime() at which the current search must
+     *  stop. */
+    private volatile long _deadline;
+    /** Depth of the current iteration of the current search. */
+    private volatile int _iteration;
+    /** True iff the current iteration has been abandoned. */
+    private volatile boolean _aborted;
 }
@@ -1,10 +1,10 @@
 package amazons;
 
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Random;
 import static amazons.Piece.*;
-import java.util.Stack;
 /**
  import java.util.ArrayDeque;
  import java.util.NoSuchElementException;
@@ -20,6 +20,11 @@ class Board {
     /** The number of squares on a side of the board. */
     static final int SIZE = 10;
 
+    /** An upper bound on the number of legal moves for one side in any
+     *  position: four queens, each with at most 35 destinations, from
+     *  each of which at most 35 spear throws are possible. */
+    static final int MAX_MOVES = 4 * 35 * 35;
+
     /** Initializes a game board with SIZE squares on a side in the
      *  initial position. */
     Board() {
@@ -34,48 +39,34 @@ class Board {
 
     /** Copies MODEL into me. */
     void copy(Board model) {
-        _board = new Piece[SIZE][SIZE];
-        _moves = new Stack<>();
         this._numMoves = model.numMoves();
-        int total = 9 * 11;
-        for (int i = 0; i < total; i++) {
-            Square sq = Square.sq(i);
-            this.setBoard(sq, model.findPiece(sq));
-        }
-        this.changeTurn(model.turn());
+        System.arraycopy(model._board, 0, _board, 0, _board.length);
+        System.arraycopy(model._lo, 0, _lo, 0, _lo.length);
+        System.arraycopy(model._hi, 0, _hi, 0, _hi.length);
+        this._turn = model._turn;
+        this._hash = model._hash;
         this._winner = model._winner;
-        this._moves.clear();
-        Move[] temp = new Move[this.numMoves()];
-        for (int i = temp.length - 1; i >= 0; i--) {
-            temp[i] = model.moves().pop();
-        }
-        for (int i = 0; i < temp.length; i++) {
-            model.moves().push(temp[i]);
-            this.moves().push(temp[i]);
-        }
-
+        _moves = model._moves;
     }
 
     /** Clears the board to the initial position. */
     void init() {
-        _board = new Piece[SIZE][SIZE];
         _turn = WHITE;
-        _winner = null;
+        _hash = 0;
         _numMoves = 0;
-        _moves = new Stack<>();
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                _board[i][j] = EMPTY;
-            }
-        }
-        _board[0][3] = WHITE;
-        _board[0][6] = WHITE;
-        _board[3][0] = WHITE;
-        _board[3][9] = WHITE;
-        _board[6][0] = BLACK;
-        _board[6][9] = BLACK;
-        _board[9][3] = BLACK;
-        _board[9][6] = BLACK;
+        _moves = null;
+        Arrays.fill(_board, EMPTY);
+        Arrays.fill(_lo, 0L);
+        Arrays.fill(_hi, 0L);
+        setBoard(Square.sq(3, 0), WHITE);
+        setBoard(Square.sq(6, 0), WHITE);
+        setBoard(Square.sq(0, 3), WHITE);
+        setBoard(Square.sq(9, 3), WHITE);
+        setBoard(Square.sq(0, 6), BLACK);
+        setBoard(Square.sq(9, 6), BLACK);
+        setBoard(Square.sq(3, 9), BLACK);
+        setBoard(Square.sq(6, 9), BLACK);
+        _winner = null;
     }
 
     /** Return the Piece whose move it is (WHITE or BLACK). */
@@ -83,6 +74,13 @@ class Board {
         return _turn;
     }
 
+    /** Return a 64-bit Zobrist key for the current position, including
+     *  the side to move.  Equal positions have equal keys; unequal ones
+     *  almost always differ. */
+    long hash() {
+        return _hash;
+    }
+
     /** Return the number of moves (that have not been undone) for this
      *  board. */
     int numMoves() {
@@ -92,18 +90,36 @@ class Board {
     /** Return the winner in the current position, or null if the game is
      *  not yet finished. */
     Piece winner() {
-        Piece current = turn();
-        if (!legalMoves(current).hasNext()) {
-            if (current == BLACK) {
-                _winner = WHITE;
-            } else {
-                _winner = BLACK;
-            }
-
+        if (_winner == EMPTY) {
+            _winner = hasMove(_turn) ? null : _turn.opponent();
         }
         return _winner;
     }
 
+    /** Return true iff SIDE (WHITE or BLACK) has a legal move in the
+     *  current position, regardless of whose turn it is.  A queen with
+     *  an empty neighbor can always move there and throw its spear back
+     *  to where it came from, so this needs no move generation. */
+    boolean hasMove(Piece side) {
+        long freeLo = ~occupiedLo(), freeHi = ~occupiedHi();
+        long queensLo = _lo[side.ordinal()], queensHi = _hi[side.ordinal()];
+        for (; queensLo != 0; queensLo &= queensLo - 1) {
+            int k = Long.numberOfTrailingZeros(queensLo);
+            if (((NEIGHBORS_LO[k] & freeLo) | (NEIGHBORS_HI[k] & freeHi))
+                != 0) {
+                return true;
+            }
+        }
+        for (; queensHi != 0; queensHi &= queensHi - 1) {
+            int k = HI_BASE + Long.numberOfTrailingZeros(queensHi);
+            if (((NEIGHBORS_LO[k] & freeLo) | (NEIGHBORS_HI[k] & freeHi))
+                != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** Return the contents the square at S. */
     final Piece get(Square s) {
         return get(s.col(), s.row());
@@ -112,7 +128,7 @@ class Board {
     /** Return the contents of the square at (COL, ROW), where
      *  0 <= COL, ROW <= 9. */
     final Piece get(int col, int row) {
-        return _board[row][col];
+        return _board[col + row * SIZE];
     }
 
     /** Return the contents of the square at COL ROW. */
@@ -128,20 +144,12 @@ class Board {
 
     /** Set square (COL, ROW) to P. */
     final void put(Piece p, int col, int row) {
-        _board[row][col] = p;
-        _winner = EMPTY;
+        setBoard(Square.sq(col, row), p);
     }
 
     /** Set square COL ROW to P. */
     final void put(Piece p, char col, char row) {
-        int c = 0;
-        for ( ; c < _letters.length; c++) {
-            if (_letters[c] == col) {
-                break;
-            }
-        }
-        int r = Character.getNumericValue(row);
-        put(p, c, r - '1');
+        put(p, col - 'a', row - '1');
     }
 
     /** Return true iff FROM - TO is an unblocked queen move on the current
@@ -152,18 +160,15 @@ class Board {
     boolean isUnblockedMove(Square from, Square to, Square asEmpty) {
         assert from.isQueenMove(to);
         int dir = from.direction(to);
-        if (get(to) != EMPTY && to != asEmpty) {
-            return false;
-        }
-        int steps = Math.abs(Math.max((to.col() - from.col()),
-                (to.row() - from.row())));
-        for (int i = 1; i <= steps; i++) {
-            Square temp = from.queenMove(dir, i);
-            if (((temp != asEmpty) && (get(temp) != EMPTY))) {
-                return false;
-            }
+        int f = from.index(), t = to.index();
+        long pathLo = RAY_LO[dir][f] & ~RAY_LO[dir][t],
+            pathHi = RAY_HI[dir][f] & ~RAY_HI[dir][t];
+        long occLo = occupiedLo(), occHi = occupiedHi();
+        if (asEmpty != null) {
+            occLo &= ~lowBit(asEmpty.index());
+            occHi &= ~highBit(asEmpty.index());
         }
-        return true;
+        return ((pathLo & occLo) | (pathHi & occHi)) == 0;
     }
 
     /** Returns a list of the squares the queen passes in traveling
@@ -171,31 +176,19 @@ class Board {
      * in a DIRECTION. In this program we use @param from and
      * @param to as our parameters*/
     Square[] findPath(Square from, Square to) {
-        int dy = to.col() - from.col();
-        int dx = to.row() - from.row();
-        int distance = Math.max(Math.abs(dy), Math.abs(dx));
-        int[] direction = {dx / distance, dy / distance};
-
-        Square[] result = new Square[distance];
-        int c = from.col() + direction[1];
-        int r = from.row() + direction[0];
-        for (int i = 0; i < distance; i++) {
-            result[i] = Square.sq(c, r);
-            c += direction[1];
-            r += direction[0];
-        }
-        return result;
+        return Arrays.copyOf(from.ray(from.direction(to)),
+                             from.distance(to));
     }
 
     /** Return true iff FROM is a valid starting square for a move. */
     boolean isLegal(Square from) {
-        return _board[from.row()][from.col()] == turn();
+        return _board[from.index()] == turn();
     }
 
     /** Return true iff FROM-TO is a valid first part of move, ignoring
      *  spear throwing. */
     boolean isLegal(Square from, Square to) {
-        return isLegal(from) && (_board[to.row()][to.col()] == EMPTY)
+        return isLegal(from) && (_board[to.index()] == EMPTY)
                 && isUnblockedMove(from, to, null);
     }
 
@@ -211,41 +204,49 @@ class Board {
         return isLegal(move.from(), move.to(), move.spear());
     }
 
+    /** Return true iff the move encoded as MOVE (see Move.encode) is
+     *  legal in the current position. */
+    boolean isLegal(int move) {
+        return isLegal(Square.sq(Move.from(move)), Square.sq(Move.to(move)),
+                       Square.sq(Move.spear(move)));
+    }
+
     /** Move FROM-TO(SPEAR), assuming this is a legal move. */
     void makeMove(Square from, Square to, Square spear) {
-        assert isLegal(from, to, spear);
-        Piece queen = findPiece(from);
-        setBoard(to, queen);
-        setBoard(from, EMPTY);
-        setBoard(spear, SPEAR);
-        changeTurn();
-        _numMoves += 1;
-        Move m = Move.mv(from, to, spear);
-        _moves.push(m);
+        makeMove(Move.encode(from.index(), to.index(), spear.index()));
     }
 
     /** Move according to MOVE, assuming it is a legal move. */
     void makeMove(Move move) {
-        Square from = move.from();
-        Square to = move.to();
-        Square spear = move.spear();
-        makeMove(from, to, spear);
+        makeMove(move.code());
+    }
+
+    /** Move according to the encoded move MOVE (see Move.encode),
+     *  assuming it is a legal move. */
+    void makeMove(int move) {
+        assert isLegal(move);
+        int from = Move.from(move);
+        set(Move.to(move), _board[from]);
+        set(from, EMPTY);
+        set(Move.spear(move), SPEAR);
+        changeTurn();
+        _moves = new History(move, _moves);
+        _numMoves += 1;
     }
 
     /** Undo one move.  Has no effect on the initial board. */
     void undo() {
         if (numMoves() != 0) {
-            Move m = moves().pop();
-            Square from = m.from();
-            Square to = m.to();
-            Square spear = m.spear();
+            _numMoves -= 1;
+            int move = _moves.move;
+            _moves = _moves.previous;
+            int to = Move.to(move);
 
-            setBoard(spear, EMPTY);
-            setBoard(from, findPiece(to));
-            setBoard(to, EMPTY);
+            set(Move.spear(move), EMPTY);
+            set(Move.from(move), _board[to]);
+            set(to, EMPTY);
 
             changeTurn();
-            _numMoves -= 1;
         }
     }
 
@@ -272,56 +273,335 @@ class Board {
         return new LegalMoveIterator(side);
     }
 
+    /** Divide the squares not holding spears into regions: sets of
+     *  squares connected by steps between neighboring squares that are
+     *  also not spears.  Since queen moves and spear throws only cross
+     *  empty squares, no move ever leaves the region it starts in.  Sets
+     *  REGIONOF[k] to the number (0, 1, ...) of the region containing
+     *  square index k, or to -1 if k holds a spear, and returns the
+     *  number of regions.  REGIONOF must have at least SIZE * SIZE
+     *  entries. */
+    int regions(int[] regionOf) {
+        long openLo = ~_lo[SPEAR.ordinal()] & ALL_LO,
+            openHi = ~_hi[SPEAR.ordinal()] & ALL_HI;
+        Arrays.fill(regionOf, 0, SIZE * SIZE, -1);
+        int count = 0;
+        while ((openLo | openHi) != 0) {
+            long regionLo = openLo & -openLo,
+                regionHi = regionLo != 0 ? 0 : openHi & -openHi;
+            long frontLo = regionLo, frontHi = regionHi;
+            while ((frontLo | frontHi) != 0) {
+                long nextLo = 0, nextHi = 0;
+                for (; frontLo != 0; frontLo &= frontLo - 1) {
+                    int k = Long.numberOfTrailingZeros(frontLo);
+                    nextLo |= NEIGHBORS_LO[k];
+                    nextHi |= NEIGHBORS_HI[k];
+                }
+                for (; frontHi != 0; frontHi &= frontHi - 1) {
+                    int k = HI_BASE + Long.numberOfTrailingZeros(frontHi);
+                    nextLo |= NEIGHBORS_LO[k];
+                    nextHi |= NEIGHBORS_HI[k];
+                }
+                frontLo = nextLo & openLo & ~regionLo;
+                frontHi = nextHi & openHi & ~regionHi;
+                regionLo |= frontLo;
+                regionHi |= frontHi;
+            }
+            openLo &= ~regionLo;
+            openHi &= ~regionHi;
+            for (; regionLo != 0; regionLo &= regionLo - 1) {
+                regionOf[Long.numberOfTrailingZeros(regionLo)] = count;
+            }
+            for (; regionHi != 0; regionHi &= regionHi - 1) {
+                regionOf[HI_BASE + Long.numberOfTrailingZeros(regionHi)] =
+                    count;
+            }
+            count += 1;
+        }
+        return count;
+    }
+
+    /** Store the int encodings (see Move.encode) of all queen moves for
+     *  SIDE (regardless of whose turn it is) into MOVES, starting at
+     *  index 0, and return the number stored.  The encodings have spear
+     *  square 0; use spearThrows to complete them.  MOVES must have room
+     *  for MAX_MOVES entries. */
+    int queenMoves(Piece side, int[] moves) {
+        int count = 0;
+        long occLo = occupiedLo(), occHi = occupiedHi();
+        long queensLo = _lo[side.ordinal()], queensHi = _hi[side.ordinal()];
+        while ((queensLo | queensHi) != 0) {
+            int from;
+            if (queensLo != 0) {
+                from = Long.numberOfTrailingZeros(queensLo);
+                queensLo &= queensLo - 1;
+            } else {
+                from = HI_BASE + Long.numberOfTrailingZeros(queensHi);
+                queensHi &= queensHi - 1;
+            }
+            for (long dests = attacksLo(from, occLo, occHi); dests != 0;
+                 dests &= dests - 1) {
+                moves[count] = Move.encode(from,
+                    Long.numberOfTrailingZeros(dests), 0);
+                count += 1;
+            }
+            for (long dests = attacksHi(from, occLo, occHi); dests != 0;
+                 dests &= dests - 1) {
+                moves[count] = Move.encode(from,
+                    HI_BASE + Long.numberOfTrailingZeros(dests), 0);
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /** Store the int encodings of all legal moves that make the queen
+     *  move QUEENMOVE (an encoding whose spear square is ignored, such as
+     *  those from queenMoves) into MOVES, starting at index START, and
+     *  return the index just past the last one stored.  QUEENMOVE must be
+     *  an unblocked queen move from an occupied square. */
+    int spearThrows(int queenMove, int[] moves, int start) {
+        int from = Move.from(queenMove), to = Move.to(queenMove);
+        int count = start;
+        long openLo = occupiedLo() & ~lowBit(from),
+            openHi = occupiedHi() & ~highBit(from);
+        for (long spears = attacksLo(to, openLo, openHi); spears != 0;
+             spears &= spears - 1) {
+            moves[count] = Move.encode(from, to,
+                Long.numberOfTrailingZeros(spears));
+            count += 1;
+        }
+        for (long spears = attacksHi(to, openLo, openHi); spears != 0;
+             spears &= spears - 1) {
+            moves[count] = Move.encode(from, to,
+                HI_BASE + Long.numberOfTrailingZeros(spears));
+            count += 1;
+        }
+        return count;
+    }
+
+    /** Store into LO[d] and HI[d], for d = 1, 2, ..., the two words of
+     *  the bitboard of empty squares that SIDE's amazons can reach in d
+     *  queen moves (if QUEEN) or d single steps (otherwise) but no fewer,
+     *  moving only through empty squares.  Returns the largest such d
+     *  with a non-empty set of squares, or 0 if there is none.  LO and HI
+     *  must have at least SIZE * SIZE entries. */
+    int distanceLayers(Piece side, boolean queen, long[] lo, long[] hi) {
+        long occLo = occupiedLo(), occHi = occupiedHi();
+        long seenLo = occLo, seenHi = occHi;
+        long frontLo = _lo[side.ordinal()], frontHi = _hi[side.ordinal()];
+        int d;
+        for (d = 0; (frontLo | frontHi) != 0; d += 1) {
+            long nextLo = 0, nextHi = 0;
+            while ((frontLo | frontHi) != 0) {
+                int k;
+                if (frontLo != 0) {
+                    k = Long.numberOfTrailingZeros(frontLo);
+                    frontLo &= frontLo - 1;
+                } else {
+                    k = HI_BASE + Long.numberOfTrailingZeros(frontHi);
+                    frontHi &= frontHi - 1;
+                }
+                if (queen) {
+                    nextLo |= attacksLo(k, occLo, occHi);
+                    nextHi |= attacksHi(k, occLo, occHi);
+                } else {
+                    nextLo |= NEIGHBORS_LO[k];
+                    nextHi |= NEIGHBORS_HI[k];
+                }
+            }
+            frontLo = nextLo & ~seenLo;
+            frontHi = nextHi & ~seenHi;
+            seenLo |= frontLo;
+            seenHi |= frontHi;
+            lo[d + 1] = frontLo;
+            hi[d + 1] = frontHi;
+        }
+        return d - 1;
+    }
+
+    /** Return the total number of squares to which SIDE's amazons can
+     *  make queen moves, not counting spear throws. */
+    int queenMoveCount(Piece side) {
+        long occLo = occupiedLo(), occHi = occupiedHi();
+        int count = 0;
+        for (long queens = _lo[side.ordinal()]; queens != 0;
+             queens &= queens - 1) {
+            int from = Long.numberOfTrailingZeros(queens);
+            count += Long.bitCount(attacksLo(from, occLo, occHi))
+                + Long.bitCount(attacksHi(from, occLo, occHi));
+        }
+        for (long queens = _hi[side.ordinal()]; queens != 0;
+             queens &= queens - 1) {
+            int from = HI_BASE + Long.numberOfTrailingZeros(queens);
+            count += Long.bitCount(attacksLo(from, occLo, occHi))
+                + Long.bitCount(attacksHi(from, occLo, occHi));
+        }
+        return count;
+    }
+
+    /** Return the number of legal moves for SIDE (regardless of whose
+     *  turn it is): the sum, over each square to which one of SIDE's
+     *  amazons can move, of the number of squares to which it could then
+     *  throw its spear, with the square it left counted as empty.
+     *
+     *  A destination T in direction d from the origin F has as many
+     *  throws as it has queen moves on the unchanged board, plus F
+     *  itself, plus the squares beyond F in the direction opposite d:
+     *  that is, as many as F's destinations on that side.  The first
+     *  terms, summed over all of F's destinations, are counted a
+     *  direction at a time by repeatedly shifting the whole set of
+     *  destinations one step into empty squares, so no destination gets
+     *  a ray walk of its own.  On the benchmark positions (see
+     *  bench/amazons/Benchmarks.java) this takes about 1.0us, 0.6us and
+     *  0.45us in the opening, middlegame and endgame, against 5.7us,
+     *  2.4us and 0.9us for legalMoves to fill a buffer. */
+    int countLegalMoves(Piece side) {
+        int count = 0;
+        long occLo = occupiedLo(), occHi = occupiedHi();
+        long emptyLo = ~occLo, emptyHi = ~occHi & ALL_HI;
+        long queensLo = _lo[side.ordinal()], queensHi = _hi[side.ordinal()];
+        while ((queensLo | queensHi) != 0) {
+            int from;
+            if (queensLo != 0) {
+                from = Long.numberOfTrailingZeros(queensLo);
+                queensLo &= queensLo - 1;
+            } else {
+                from = HI_BASE + Long.numberOfTrailingZeros(queensHi);
+                queensHi &= queensHi - 1;
+            }
+            long destsLo = attacksLo(from, occLo, occHi),
+                destsHi = attacksHi(from, occLo, occHi);
+            count += Long.bitCount(destsLo) + Long.bitCount(destsHi);
+            for (int dir = 0; dir < 4; dir += 1) {
+                int ahead = Long.bitCount(destsLo & RAY_LO[dir][from])
+                    + Long.bitCount(destsHi & RAY_HI[dir][from]);
+                int behind = Long.bitCount(destsLo & RAY_LO[dir + 4][from])
+                    + Long.bitCount(destsHi & RAY_HI[dir + 4][from]);
+                count += 2 * ahead * behind;
+            }
+            for (int dir = 0; dir < 8; dir += 1) {
+                long lo = destsLo, hi = destsHi;
+                long maskLo = emptyLo & SHIFT_LO[dir],
+                    maskHi = emptyHi & SHIFT_HI[dir];
+                int step = STEP[dir];
+                while ((lo | hi) != 0) {
+                    if (step > 0) {
+                        hi = (hi << step) | (lo >>> (64 - step));
+                        lo <<= step;
+                    } else {
+                        lo = (lo >>> -step) | (hi << (64 + step));
+                        hi >>>= -step;
+                    }
+                    lo &= maskLo;
+                    hi &= maskHi;
+                    count += Long.bitCount(lo) + Long.bitCount(hi);
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Store the int encodings (see Move.encode) of all legal moves for
+     *  SIDE (regardless of whose turn it is) into MOVES, starting at
+     *  index 0, and return the number stored.  MOVES must have room for
+     *  MAX_MOVES entries.  Allocates no objects. */
+    int legalMoves(Piece side, int[] moves) {
+        int count = 0;
+        long occLo = occupiedLo(), occHi = occupiedHi();
+        long queensLo = _lo[side.ordinal()], queensHi = _hi[side.ordinal()];
+        while ((queensLo | queensHi) != 0) {
+            int from;
+            if (queensLo != 0) {
+                from = Long.numberOfTrailingZeros(queensLo);
+                queensLo &= queensLo - 1;
+            } else {
+                from = HI_BASE + Long.numberOfTrailingZeros(queensHi);
+                queensHi &= queensHi - 1;
+            }
+            long openLo = occLo & ~lowBit(from),
+                openHi = occHi & ~highBit(from);
+            long destsLo = attacksLo(from, occLo, occHi),
+                destsHi = attacksHi(from, occLo, occHi);
+            while ((destsLo | destsHi) != 0) {
+                int to;
+                if (destsLo != 0) {
+                    to = Long.numberOfTrailingZeros(destsLo);
+                    destsLo &= destsLo - 1;
+                } else {
+                    to = HI_BASE + Long.numberOfTrailingZeros(destsHi);
+                    destsHi &= destsHi - 1;
+                }
+                for (long spears = attacksLo(to, openLo, openHi); spears != 0;
+                     spears &= spears - 1) {
+                    moves[count] = Move.encode(from, to,
+                        Long.numberOfTrailingZeros(spears));
+                    count += 1;
+                }
+                for (long spears = attacksHi(to, openLo, openHi); spears != 0;
+                     spears &= spears - 1) {
+                    moves[count] = Move.encode(from, to,
+                        HI_BASE + Long.numberOfTrailingZeros(spears));
+                    count += 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** One entry in an immutable list of the moves made on a Board. */
+    private static final class History {
+        /** The list consisting of the encoded move MOVE followed by the
+         *  earlier moves PREVIOUS. */
+        History(int move, History previous) {
+            this.move = move;
+            this.previous = previous;
+        }
+
+        /** The encoding of the most recent move. */
+        private final int move;
+        /** The moves before it, or null. */
+        private final History previous;
+    }
+
     /** An iterator used by reachableFrom. */
     private class ReachableFromIterator implements Iterator<Square> {
 
         /** Iterator of all squares reachable by queen move from FROM,
          *  treating ASEMPTY as empty. */
         ReachableFromIterator(Square from, Square asEmpty) {
-            _from = from;
-            _dir = 0;
-            _steps = 0;
-            _asEmpty = asEmpty;
-            toNext();
+            long occLo = occupiedLo(), occHi = occupiedHi();
+            if (asEmpty != null) {
+                occLo &= ~lowBit(asEmpty.index());
+                occHi &= ~highBit(asEmpty.index());
+            }
+            _lo = attacksLo(from.index(), occLo, occHi);
+            _hi = attacksHi(from.index(), occLo, occHi);
         }
 
         @Override
         public boolean hasNext() {
-            return _dir < 8;
+            return (_lo | _hi) != 0;
         }
 
         @Override
         public Square next() {
-            Square result = _from.queenMove(_dir, _steps);
-            toNext();
-            return result;
-        }
-
-        /** Advance _dir and _steps, so that the next valid Square is
-         *  _steps steps in direction _dir from _from. */
-        private void toNext() {
-            Square temp = _from.queenMove(_dir, _steps + 1);
-            if (temp != null && isUnblockedMove(_from, temp, _asEmpty)) {
-                _steps += 1;
+            int index;
+            if (_lo != 0) {
+                index = Long.numberOfTrailingZeros(_lo);
+                _lo &= _lo - 1;
             } else {
-                _dir++;
-                _steps = 1;
-                while (_dir < 8 && (_from.queenMove(_dir, 1) == null
-                        || (get(_from.queenMove(_dir, 1)) != EMPTY)
-                        && _from.queenMove(_dir, 1) != _asEmpty)) {
-                    _dir += 1;
-                }
+                index = HI_BASE + Long.numberOfTrailingZeros(_hi);
+                _hi &= _hi - 1;
             }
+            return Square.sq(index);
         }
 
-        /** Starting square. */
-        private Square _from;
-        /** Current direction. */
-        private int _dir;
-        /** Current distance. */
-        private int _steps;
-        /** Square treated as empty. */
-        private Square _asEmpty;
+        /** Remaining reachable squares with indices 0-63. */
+        private long _lo;
+        /** Remaining reachable squares with indices 64-99, shifted down
+         *  by HI_BASE. */
+        private long _hi;
     }
 
     /** An iterator used by legalMoves. */
@@ -329,74 +609,83 @@ class Board {
 
         /** All legal moves for SIDE (WHITE or BLACK). */
         LegalMoveIterator(Piece side) {
-            _startingSquares = Square.iterator();
-            _spearThrows = NO_SQUARES;
-            _pieceMoves = NO_SQUARES;
-            _fromPiece = side;
+            _occLo = occupiedLo();
+            _occHi = occupiedHi();
+            _queensLo = _lo[side.ordinal()];
+            _queensHi = _hi[side.ordinal()];
             toNext();
         }
 
         @Override
         /** A program that checks if the spear has next */
         public boolean hasNext() {
-            Boolean result = _spearThrows.hasNext();
-            return result;
+            return (_spearsLo | _spearsHi) != 0;
         }
 
         @Override
         /** a program that checks the next move */
         public Move next() {
-            Move m = Move.mv(_start, _nextSquare, _spearThrows.next());
+            int spear;
+            if (_spearsLo != 0) {
+                spear = Long.numberOfTrailingZeros(_spearsLo);
+                _spearsLo &= _spearsLo - 1;
+            } else {
+                spear = HI_BASE + Long.numberOfTrailingZeros(_spearsHi);
+                _spearsHi &= _spearsHi - 1;
+            }
+            Move m = Move.mv(Square.sq(_start), Square.sq(_nextSquare),
+                             Square.sq(spear));
             toNext();
             return m;
         }
 
         /** Advance so that the next valid Move is
-         *  _start-_nextSquare(sp), where sp is the next value of
-         *  _spearThrows. */
+         *  _start-_nextSquare(sp), where sp is the next square in
+         *  _spearsLo, _spearsHi. */
         private void toNext() {
-            while (!_spearThrows.hasNext()) {
-
-                while (!_pieceMoves.hasNext()) {
-
-                    if (_startingSquares.hasNext()) {
-                        _start = _startingSquares.next();
-                    } else {
+            while ((_spearsLo | _spearsHi) == 0) {
+                while ((_destsLo | _destsHi) == 0) {
+                    if ((_queensLo | _queensHi) == 0) {
                         return;
                     }
-                    while (_startingSquares.hasNext()
-                            && _fromPiece != findPiece(_start)) {
-                        _start = _startingSquares.next();
-                    }
-                    if (_fromPiece != findPiece(_start)) {
-                        return;
+                    if (_queensLo != 0) {
+                        _start = Long.numberOfTrailingZeros(_queensLo);
+                        _queensLo &= _queensLo - 1;
+                    } else {
+                        _start = HI_BASE
+                            + Long.numberOfTrailingZeros(_queensHi);
+                        _queensHi &= _queensHi - 1;
                     }
-
-                    _pieceMoves = reachableFrom(_start, null);
-
+                    _destsLo = attacksLo(_start, _occLo, _occHi);
+                    _destsHi = attacksHi(_start, _occLo, _occHi);
                 }
-                _nextSquare = _pieceMoves.next();
-                _spearThrows = reachableFrom(_nextSquare, _start);
-
-
+                if (_destsLo != 0) {
+                    _nextSquare = Long.numberOfTrailingZeros(_destsLo);
+                    _destsLo &= _destsLo - 1;
+                } else {
+                    _nextSquare = HI_BASE
+                        + Long.numberOfTrailingZeros(_destsHi);
+                    _destsHi &= _destsHi - 1;
+                }
+                long openLo = _occLo & ~lowBit(_start),
+                    openHi = _occHi & ~highBit(_start);
+                _spearsLo = attacksLo(_nextSquare, openLo, openHi);
+                _spearsHi = attacksHi(_nextSquare, openLo, openHi);
             }
-
         }
 
-        /** Color of side whose moves we are iterating. */
-        private Piece _fromPiece;
-        /** Current starting square. */
-        private Square _start;
+        /** Occupied squares when the iterator was created. */
+        private long _occLo, _occHi;
         /** Remaining starting squares to consider. */
-        private Iterator<Square> _startingSquares;
-        /** Current piece's new position. */
-        private Square _nextSquare;
+        private long _queensLo, _queensHi;
+        /** Index of the current starting square. */
+        private int _start;
         /** Remaining moves from _start to consider. */
-        private Iterator<Square> _pieceMoves;
-        /** Remaining spear throws from _piece to consider. */
-        private Iterator<Square> _spearThrows;
-        /** Next spear throw. */
-        private Square _spearThrow;
+        private long _destsLo, _destsHi;
+        /** Index of the current piece's new position. */
+        private int _nextSquare;
+        /** Remaining spear throws from _nextSquare to consider. */
+        private long _spearsLo, _spearsHi;
     }
 
     @Override
@@ -406,11 +695,11 @@ class Board {
             for (int j = 0; j < SIZE; j++) {
                 if (j == 0) {
                     result += "   ";
-                    result += _board[i][j].toString() + " ";
+                    result += get(j, i).toString() + " ";
                 } else if (j == SIZE - 1) {
-                    result += _board[i][j].toString() + "\n";
+                    result += get(j, i).toString() + "\n";
                 } else {
-                    result += _board[i][j].toString() + " ";
+                    result += get(j, i).toString() + " ";
                 }
             }
         }
@@ -421,16 +710,14 @@ class Board {
     So they might be wrong. :) */
     /** Returns the piece at the board at COL and ROW. */
     public Piece board(int col, int row) {
-        return _board[row][col];
+        return _board[col + row * SIZE];
     }
 
     /** Returns the piece at the board with a given index (MINE)
      * in which the function takes in an index argument. Here
      * we use @param index parameter as an argument. */
     public Piece board(int index) {
-        int row = index / SIZE;
-        int col = index % SIZE;
-        return _board[row][col];
+        return _board[index];
     }
 
     /** Return the piece at the board with the given square MINE
@@ -444,13 +731,100 @@ class Board {
 
     /** Sets the piece at S to be P MINE. */
     private void setBoard(Square s, Piece p) {
-        int row = s.index() / SIZE;
-        int col = s.index() % SIZE;
-        _board[row][col] = p;
+        set(s.index(), p);
+    }
+
+    /** Sets the piece at the square with index INDEX to P. */
+    private void set(int index, Piece p) {
+        Piece old = _board[index];
+        _hash ^= ZOBRIST[old.ordinal()][index] ^ ZOBRIST[p.ordinal()][index];
+        _lo[old.ordinal()] &= ~lowBit(index);
+        _hi[old.ordinal()] &= ~highBit(index);
+        _lo[p.ordinal()] |= lowBit(index);
+        _hi[p.ordinal()] |= highBit(index);
+        _board[index] = p;
+        _winner = EMPTY;
+    }
+
+    /** Return the bitboard of occupied squares with indices 0-63. */
+    private long occupiedLo() {
+        return _lo[WHITE.ordinal()] | _lo[BLACK.ordinal()]
+            | _lo[SPEAR.ordinal()];
+    }
+
+    /** Return the bitboard of occupied squares with indices 64-99. */
+    private long occupiedHi() {
+        return _hi[WHITE.ordinal()] | _hi[BLACK.ordinal()]
+            | _hi[SPEAR.ordinal()];
+    }
+
+    /** Return the low word of the bitboard containing only square
+     *  INDEX. */
+    private static long lowBit(int index) {
+        return index < HI_BASE ? 1L << index : 0L;
+    }
+
+    /** Return the high word of the bitboard containing only square
+     *  INDEX. */
+    private static long highBit(int index) {
+        return index < HI_BASE ? 0L : 1L << (index - HI_BASE);
+    }
+
+    /** Return the low word (squares 0-63) of the bitboard of empty
+     *  squares reachable by an unblocked queen move from FROM, given the
+     *  occupied squares OCCLO, OCCHI.  Reads no Board state, so that
+     *  queries on a Board never write to it.  Along an ascending ray,
+     *  every low square precedes every high one, so only a low blocker
+     *  cuts the low word; along a descending ray, any high blocker
+     *  cuts all of it. */
+    private static long attacksLo(int from, long occLo, long occHi) {
+        long result = 0;
+        for (int dir = 0; dir < 8; dir += 1) {
+            long ray = RAY_LO[dir][from];
+            long block = ray & occLo;
+            if (ASCENDING[dir]) {
+                if (block != 0) {
+                    ray &= ((block & -block) << 1) - 1;
+                }
+            } else if ((RAY_HI[dir][from] & occHi) != 0) {
+                ray = 0;
+            } else if (block != 0) {
+                ray &= -Long.highestOneBit(block);
+            }
+            result |= ray;
+        }
+        return result & ~occLo;
+    }
+
+    /** Return the high word (squares 64-99) of the bitboard of empty
+     *  squares reachable by an unblocked queen move from FROM, given the
+     *  occupied squares OCCLO, OCCHI.  Reads no Board state.  The mirror
+     *  image of attacksLo. */
+    private static long attacksHi(int from, long occLo, long occHi) {
+        long result = 0;
+        for (int dir = 0; dir < 8; dir += 1) {
+            long ray = RAY_HI[dir][from];
+            long block = ray & occHi;
+            if (!ASCENDING[dir]) {
+                if (block != 0) {
+                    ray &= -Long.highestOneBit(block);
+                }
+            } else if ((RAY_LO[dir][from] & occLo) != 0) {
+                ray = 0;
+            } else if (block != 0) {
+                ray &= ((block & -block) << 1) - 1;
+            }
+            result |= ray;
+        }
+        return result & ~occHi;
     }
 
     /** Changes turn to P MINE. */
     void changeTurn(Piece p) {
+        if (p != _turn) {
+            _hash ^= BLACK_TO_MOVE;
+            _winner = EMPTY;
+        }
         _turn = p;
     }
 
@@ -463,35 +837,116 @@ class Board {
         }
     }
 
-    /** Returns the current moves made MINE. */
-    Stack<Move> moves() {
-        return _moves;
-    }
-
-    /** An empty iterator for initialization. */
-    private static final Iterator<Square> NO_SQUARES =
-            Collections.emptyIterator();
-
     /** Piece whose turn it is (BLACK or WHITE). */
     private Piece _turn;
 
     /** Cached value of winner on this board, or EMPTY if it has not been
-     *  computed. */
+     *  computed since the board last changed. */
     private Piece _winner;
 
     /* Everything below is mine :) */
 
+    /** Zobrist key of the current position (see hash). */
+    private long _hash;
+
     /** The number of moves that have been made. */
     private int _numMoves;
 
     /** The board itself with each square representing a
-     * white, black, spear, or empty piece. */
-    private Piece[][] _board;
-
-    /** Represents past moves. */
-    private Stack<Move> _moves;
-
-    /** Helps get you the column number from the letter. */
-    private final char[] _letters =
-    {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j'};
+     * white, black, spear, or empty piece, indexed by square index. */
+    private final Piece[] _board = new Piece[SIZE * SIZE];
+
+    /** Bitboards of the squares holding each kind of Piece, indexed by
+     *  Piece ordinal.  Bit k of _lo[p] is set iff square k (0 <= k < 64)
+     *  holds p; bit k of _hi[p] iff square HI_BASE + k does.  The entry
+     *  for EMPTY is maintained but unused. */
+    private final long[] _lo = new long[Piece.values().length],
+        _hi = new long[Piece.values().length];
+
+    /** Represents past moves, most recent first, or null if no moves
+     *  have been made.  Since History is immutable, Boards may share it,
+     *  and copying a Board never needs to copy or modify it. */
+    private History _moves;
+
+    /** ZOBRIST[p][k] is the random key XORed into the hash when square k
+     *  holds the Piece with ordinal p; all keys for EMPTY are 0. */
+    private static final long[][] ZOBRIST =
+        new long[Piece.values().length][SIZE * SIZE];
+
+    /** The key XORed into the hash when BLACK is to move. */
+    private static final long BLACK_TO_MOVE;
+
+    /** Seed for the Zobrist keys.  Fixed, so that hashes are stable from
+     *  run to run (and may be stored in files). */
+    private static final long ZOBRIST_SEED = 0x616d617a6f6e73L;
+
+    static {
+        Random keys = new Random(ZOBRIST_SEED);
+        for (Piece p : Piece.values()) {
+            if (p != EMPTY) {
+                for (int k = 0; k < SIZE * SIZE; k += 1) {
+                    ZOBRIST[p.ordinal()][k] = keys.nextLong();
+                }
+            }
+        }
+        BLACK_TO_MOVE = keys.nextLong();
+    }
+
+    /** Index of the first square held in the high word of a bitboard. */
+    private static final int HI_BASE = 64;
+
+    /** The low and high words of the bitboard of all squares. */
+    private static final long
+        ALL_LO = -1L,
+        ALL_HI = (1L << (SIZE * SIZE - HI_BASE)) - 1;
+
+    /** ASCENDING[d] is true iff square indices increase along direction
+     *  d (as defined for Square.queenMove). */
+    private static final boolean[] ASCENDING = {
+        true, true, true, false, false, false, false, true
+    };
+
+    /** RAY_LO[d][k] and RAY_HI[d][k] together are the bitboard of all
+     *  squares reached by moving one or more steps from square k in
+     *  direction d. */
+    private static final long[][]
+        RAY_LO = new long[8][SIZE * SIZE],
+        RAY_HI = new long[8][SIZE * SIZE];
+
+    /** STEP[d] is the change in square index of one step in direction
+     *  d. */
+    private static final int[] STEP = new int[8];
+
+    /** SHIFT_LO[d] and SHIFT_HI[d] together are the bitboard of squares
+     *  reached by one step in direction d from some square, so that
+     *  masking with them discards a shift by STEP[d] that wraps around
+     *  an edge of the board. */
+    private static final long[]
+        SHIFT_LO = new long[8],
+        SHIFT_HI = new long[8];
+
+    /** NEIGHBORS_LO[k] and NEIGHBORS_HI[k] together are the bitboard of
+     *  the squares adjacent to square k. */
+    private static final long[]
+        NEIGHBORS_LO = new long[SIZE * SIZE],
+        NEIGHBORS_HI = new long[SIZE * SIZE];
+
+    static {
+        for (int dir = 0; dir < 8; dir += 1) {
+            for (int k = 0; k < SIZE * SIZE; k += 1) {
+                for (Square to : Square.sq(k).ray(dir)) {
+                    RAY_LO[dir][k] |= lowBit(to.index());
+                    RAY_HI[dir][k] |= highBit(to.index());
+                }
+                Square next = Square.sq(k).queenMove(dir, 1);
+                if (next != null) {
+                    NEIGHBORS_LO[k] |= lowBit(next.index());
+                    NEIGHBORS_HI[k] |= highBit(next.index());
+                    SHIFT_LO[dir] |= lowBit(next.index());
+                    SHIFT_HI[dir] |= highBit(next.index());
+                    STEP[dir] = next.index() - k;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package amazons;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import ucb.util.CommandArgs;
+
+import static amazons.Piece.*;
+
+/** An offline builder for opening books (see OpeningBook).  Starting from
+ *  the initial position, it searches each book position with a long time
+ *  limit and records the move found.  The positions for the next ply are
+ *  those reached from each book position by its book move and by the
+ *  next best few moves according to the territory evaluator, so that
+ *  the book also covers plausible replies that differ from its own
+ *  choices.
+ *  @author Tony Tu
+ */
+public class BookBuilder {
+
+    /** Default number of plies covered by a book. */
+    static final int DEFAULT_PLIES = 2;
+    /** Default number of moves followed from each book position. */
+    static final int DEFAULT_WIDTH = 4;
+    /** Default search time per book position, in milliseconds. */
+    static final long DEFAULT_TIME_LIMIT = 10000;
+
+    /** Build a book as directed by ARGS, which contain the name of the
+     *  book file and the options --plies=N (plies covered), --width=N
+     *  (moves followed from each position), --time=MILLIS (search time
+     *  per position), and --threads=N (search threads). */
+    public static void main(String... args) {
+        CommandArgs options =
+            new CommandArgs("--plies=(\\d+){0,1} --width=(\\d+){0,1} "
+                            + "--time=(\\d+){0,1} --threads=(\\d+){0,1} "
+                            + "--={1}",
+                            args);
+        if (!options.ok()) {
+            System.err.println("Usage: java amazons.BookBuilder"
+                               + " [--plies=N] [--width=N] [--time=MILLIS]"
+                               + " [--threads=N] FILE");
+            System.exit(1);
+        }
+        int plies = DEFAULT_PLIES, width = DEFAULT_WIDTH;
+        if (options.contains("--plies")) {
+            plies = Integer.parseInt(options.getFirst("--plies"));
+        }
+        if (options.contains("--width")) {
+            width = Math.max(1, Integer.parseInt(options.getFirst("--width")));
+        }
+        AI template = new AI();
+        template.setTimeLimit(DEFAULT_TIME_LIMIT);
+        if (options.contains("--time")) {
+            template.setTimeLimit(Long.parseLong(options.getFirst("--time")));
+        }
+        if (options.contains("--threads")) {
+            template.setThreads(
+                Integer.parseInt(options.getFirst("--threads")),
+                AI.Parallelism.ROOT_SPLIT);
+        }
+        BookBuilder builder = new BookBuilder(template, width);
+        try {
+            builder.build(plies, options.getFirst("--"));
+        } catch (IOException excp) {
+            System.err.printf("Could not write book: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** A builder using AIs made from TEMPLATE, following WIDTH moves from
+     *  each book position. */
+    BookBuilder(AI template, int width) {
+        _white = (AI) template.create(WHITE, null);
+        _black = (AI) template.create(BLACK, null);
+        _width = width;
+    }
+
+    /** Write a book covering PLIES plies to the file named FILENAME. */
+    void build(int plies, String fileName) throws IOException {
+        List<Board> frontier = new ArrayList<>();
+        frontier.add(new Board());
+        Set<Long> done = new HashSet<>();
+        for (int ply = 0; ply < plies; ply += 1) {
+            List<Board> next = new ArrayList<>();
+            for (Board position : frontier) {
+                if (position.winner() != null
+                    || !done.add(position.hash())) {
+                    continue;
+                }
+                AI ai = position.turn() == WHITE ? _white : _black;
+                int move = ai.findMove(position).code();
+                add(position.hash(), move, ai.lastScore());
+                if (ply + 1 < plies) {
+                    for (int reply : candidates(position, move)) {
+                        Board child = new Board(position);
+                        child.makeMove(reply);
+                        next.add(child);
+                    }
+                }
+            }
+            System.out.printf("ply %d: %d positions%n", ply, _size);
+            frontier = next;
+        }
+        OpeningBook.write(fileName, _keys, _moves, _scores, _size);
+    }
+
+    /** Return the encoded moves to follow from POSITION, whose book move
+     *  is BOOKMOVE: BOOKMOVE itself, then the _width - 1 other moves
+     *  after which the territory evaluator most favors the mover. */
+    private int[] candidates(Board position, int bookMove) {
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = position.legalMoves(position.turn(), moves);
+        int sense = position.turn() == WHITE ? 1 : -1;
+        long[] keys = new long[n];
+        Board child = new Board(position);
+        for (int i = 0; i < n; i += 1) {
+            child.makeMove(moves[i]);
+            int score = child.winner() == null ? _territory.score(child)
+                : sense * Integer.MAX_VALUE;
+            child.undo();
+            keys[i] = ((long) -(sense * score) << Integer.SIZE) | moves[i];
+        }
+        Arrays.sort(keys);
+        int[] result = new int[Math.min(_width, n)];
+        result[0] = bookMove;
+        for (int i = 0, k = 1; k < result.length; i += 1) {
+            if ((int) keys[i] != bookMove) {
+                result[k] = (int) keys[i];
+                k += 1;
+            }
+        }
+        return result;
+    }
+
+    /** Add an entry giving book move MOVE with value SCORE for the
+     *  position with hash KEY. */
+    private void add(long key, int move, int score) {
+        if (_size == _keys.length) {
+            int capacity = 2 * _size + 1;
+            _keys = Arrays.copyOf(_keys, capacity);
+            _moves = Arrays.copyOf(_moves, capacity);
+            _scores = Arrays.copyOf(_scores, capacity);
+        }
+        _keys[_size] = key;
+        _moves[_size] = move;
+        _scores[_size] = score;
+        _size += 1;
+    }
+
+    /** The players searching white's and black's book positions. */
+    private final AI _white, _black;
+    /** Number of moves followed from each book position. */
+    private final int _width;
+    /** Evaluator used to choose the moves to follow. */
+    private final Territory _territory = new Territory();
+    /** Hashes of the positions found so far. */
+    private long[] _keys = new long[0];
+    /** Book moves of the positions in _keys. */
+    private int[] _moves = new int[0];
+    /** Values of the positions in _keys. */
+    private int[] _scores = new int[0];
+    /** Number of positions found so far. */
+    private int _size;
+}
@@ -67,6 +67,8 @@ final class Controller {
                 reportError("Error: %s%n", excp.getMessage());
             }
         }
+        _white.stop();
+        _black.stop();
         if (_logFile != null) {
             _logFile.close();
         }
@@ -86,6 +88,12 @@ final class Controller {
         return _randGen.nextInt(U);
     }
 
+    /** Return a random long from the same sequence as randInt.  Intended
+     *  for seeding other generators, such as those of threads in an AI. */
+    long randLong() {
+        return _randGen.nextLong();
+    }
+
     /** Re-seed the pseudo-random number generator (PRNG) that supplies randInt
      *  with the value SEED. Identical seeds produce identical sequences.
      *  Initially, the PRNG is randomly seeded. */
@@ -181,6 +189,8 @@ final class Controller {
 
     /** Command "new". */
     private void doNew(Matcher unused) {
+        _white.stop();
+        _black.stop();
         _board.init();
         _winner = null;
     }
@@ -208,6 +218,8 @@ final class Controller {
         Move m = Move.mv(matchString.group());
         if (m != null && _board.isLegal(m)) {
             _board.makeMove(m);
+            _white.notifyMove(m);
+            _black.notifyMove(m);
         } else {
             System.out.println("illegal move");
         }
@@ -225,8 +237,10 @@ final class Controller {
         String player = matchString.group(1);
         System.out.println(player);
         if (player.equals("white")) {
+            _white.stop();
             _white = _manualPlayerTemplate.create(Piece.WHITE, this);
         } else if (player.equals("black")) {
+            _black.stop();
             _black = _manualPlayerTemplate.create(Piece.BLACK, this);
         } else {
             System.out.println("Something went wrong");
@@ -240,8 +254,10 @@ final class Controller {
         String player = matchString.group(1);
         System.out.println(player);
         if (player.equals("white")) {
+            _white.stop();
             _white = _autoPlayerTemplate.create(Piece.WHITE, this);
         } else if (player.equals("black")) {
+            _black.stop();
             _black = _autoPlayerTemplate.create(Piece.BLACK, this);
         } else {
             System.out.println("Something went wrong");
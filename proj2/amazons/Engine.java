@@ -0,0 +1,22 @@
+package amazons;
+
+/** A player that can choose moves on any Board, without a Controller,
+ *  so that games between engines can be played directly (see
+ *  MatchRunner).
+ *  @author Tony Tu
+ */
+interface Engine {
+
+    /** Return a new engine with my settings that plays PIECE (WHITE or
+     *  BLACK). */
+    Engine createEngine(Piece piece);
+
+    /** Return a move for me from POSITION, on which it is my turn and
+     *  there is a move. */
+    Move findMove(Board position);
+
+    /** Return the total number of positions I have examined while
+     *  choosing moves. */
+    long nodeCount();
+
+}
@@ -0,0 +1,94 @@
+package amazons;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** A fixed-size cache of static evaluations, indexed by position hash
+ *  (see Board.hash).  The number of slots is a power of two, and each
+ *  position has just one slot, so a new entry always replaces the one
+ *  already there.  As in TranspositionTable, each slot holds a data word
+ *  (the score) and a check word (the full hash XORed with the data
+ *  word), so that several threads may share one cache without locking.
+ *  The cache counts the hits and misses of its lookups.
+ *  @author Tony Tu
+ */
+class EvalCache {
+
+    /** Value returned by probe when there is no entry for a position. */
+    static final long NO_ENTRY = 0;
+
+    /** Number of bytes used by one slot. */
+    static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /** A cache using about MEGABYTES megabytes (rounded down to a power
+     *  of two number of slots, but at least one slot). */
+    EvalCache(int megabytes) {
+        long slots =
+            Math.max(1, (long) megabytes * (1 << 20) / ENTRY_BYTES);
+        int size = Integer.highestOneBit((int) Math.min(slots, MAX_SLOTS));
+        _checks = new long[size];
+        _data = new long[size];
+        _mask = size - 1;
+    }
+
+    /** Return the number of slots in this cache. */
+    int size() {
+        return _data.length;
+    }
+
+    /** Return the packed entry for the position with hash KEY, or
+     *  NO_ENTRY if there is none, counting a hit or a miss accordingly.
+     *  Use score to unpack the result. */
+    long probe(long key) {
+        int slot = (int) key & _mask;
+        long data = _data[slot];
+        if (data != NO_ENTRY && (_checks[slot] ^ data) == key) {
+            _hits.increment();
+            return data;
+        }
+        _misses.increment();
+        return NO_ENTRY;
+    }
+
+    /** Return the score recorded in the packed entry ENTRY. */
+    static int score(long entry) {
+        return (int) (entry >> SCORE_SHIFT);
+    }
+
+    /** Record SCORE as the static value of the position with hash KEY. */
+    void store(long key, int score) {
+        int slot = (int) key & _mask;
+        long data = ((long) score << SCORE_SHIFT) | VALID;
+        _checks[slot] = key ^ data;
+        _data[slot] = data;
+    }
+
+    /** Return the number of lookups that found a score. */
+    long hits() {
+        return _hits.sum();
+    }
+
+    /** Return the number of lookups that found no score. */
+    long misses() {
+        return _misses.sum();
+    }
+
+    /** Bit set in the data word of every full slot, so that none is
+     *  NO_ENTRY. */
+    private static final long VALID = 1;
+    /** Position of the score in a data word. */
+    private static final int SCORE_SHIFT = 32;
+    /** Largest number of slots in a cache. */
+    private static final int MAX_SLOTS = 1 << 30;
+
+    /** Hash of the position stored in each slot XORed with the slot's
+     *  data word. */
+    private final long[] _checks;
+    /** Packed score for each slot, or NO_ENTRY. */
+    private final long[] _data;
+    /** Mask selecting a slot index from a hash. */
+    private final int _mask;
+    /** Number of lookups that found a score. */
+    private final LongAdder _hits = new LongAdder();
+    /** Number of lookups that found no score. */
+    private final LongAdder _misses = new LongAdder();
+}
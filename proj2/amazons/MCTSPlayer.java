@@ -0,0 +1,361 @@
+package amazons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static java.lang.Math.*;
+import static amazons.Piece.*;
+
+/** A Player that chooses moves by Monte Carlo tree search, using the UCT
+ *  rule to decide which branches of its tree to explore.  Each iteration
+ *  descends the tree, adds one new node, and finishes the game from
+ *  there by a random playout, whose outcome is credited to every node
+ *  on the way down.  The move played is the most visited one at the
+ *  root.
+ *  <p>
+ *  Playouts use a light policy: pick a random queen move, then a random
+ *  spear throw for it.  A playout that has not ended after a fixed
+ *  number of plies is decided by the territory evaluator (see
+ *  Territory).
+ *  <p>
+ *  With several threads, each grows its own tree from the same position
+ *  (root parallelization) and the root visit counts are added together.
+ *  Each thread has its own SplittableRandom, all split from one seeded
+ *  from the Controller's random numbers (or from my own, seeded by
+ *  setSeed, when there is no Controller), so that after the Controller's
+ *  "seed" command a search limited only by iterations plays the same
+ *  moves every time.
+ *  @author Tony Tu
+ */
+class MCTSPlayer extends Player implements Engine {
+
+    /** Default time limit per move, in milliseconds. */
+    static final long DEFAULT_TIME_LIMIT = AI.DEFAULT_TIME_LIMIT;
+    /** Default number of plies after which playouts are evaluated. */
+    static final int DEFAULT_PLAYOUT_DEPTH = 20;
+
+    /** A new MCTSPlayer with no piece or controller (intended to produce
+     *  a template). */
+    MCTSPlayer() {
+        this(null, null);
+    }
+
+    /** A new MCTSPlayer playing PIECE under control of CONTROLLER. */
+    MCTSPlayer(Piece piece, Controller controller) {
+        super(piece, controller);
+        _timeLimit = DEFAULT_TIME_LIMIT;
+        _iterationLimit = 0;
+        _playoutDepth = DEFAULT_PLAYOUT_DEPTH;
+        _threads = 1;
+        _seeds = new Random();
+    }
+
+    /** A new MCTSPlayer playing PIECE under control of CONTROLLER, with
+     *  the same settings as TEMPLATE. */
+    private MCTSPlayer(Piece piece, Controller controller,
+                       MCTSPlayer template) {
+        super(piece, controller);
+        _timeLimit = template._timeLimit;
+        _iterationLimit = template._iterationLimit;
+        _playoutDepth = template._playoutDepth;
+        _threads = template._threads;
+        _seeds = new Random(template._seeds.nextLong());
+    }
+
+    @Override
+    Player create(Piece piece, Controller controller) {
+        return new MCTSPlayer(piece, controller, this);
+    }
+
+    @Override
+    public Engine createEngine(Piece piece) {
+        return new MCTSPlayer(piece, null, this);
+    }
+
+    /** Spend about MILLIS milliseconds choosing each move, or no limit
+     *  if MILLIS is 0. */
+    void setTimeLimit(long millis) {
+        _timeLimit = millis;
+    }
+
+    /** Run at most ITERATIONS iterations, divided evenly among my
+     *  threads, for each move, or no limit if ITERATIONS is 0.  At least
+     *  one of the iteration and time limits must be set. */
+    void setIterationLimit(int iterations) {
+        _iterationLimit = iterations;
+    }
+
+    /** End playouts after PLIES plies (PLIES > 0), deciding their outcome
+     *  by the territory evaluator. */
+    void setPlayoutDepth(int plies) {
+        _playoutDepth = max(1, plies);
+    }
+
+    /** Seed the random numbers I use when I have no Controller with
+     *  SEED. */
+    void setSeed(long seed) {
+        _seeds.setSeed(seed);
+    }
+
+    /** Search using THREADS >= 1 threads, each growing its own tree. */
+    void setThreads(int threads) {
+        _threads = max(1, threads);
+        _pool = null;
+    }
+
+    @Override
+    String myMove() {
+        Move move = findMove();
+        _controller.reportMove(move);
+        return move.toString();
+    }
+
+    /** Return a move for me from the current position, assuming there
+     *  is a move. */
+    private Move findMove() {
+        return findMove(board());
+    }
+
+    /** Return a move for me from POSITION, assuming that it is my turn
+     *  and there is a move. */
+    @Override
+    public Move findMove(Board position) {
+        long deadline = _timeLimit == 0 ? Long.MAX_VALUE
+            : System.nanoTime() + _timeLimit * NANOS_PER_MILLI;
+        int iterations = _iterationLimit == 0 ? Integer.MAX_VALUE
+            : max(1, _iterationLimit / _threads);
+        SplittableRandom random = new SplittableRandom(
+            _controller == null ? _seeds.nextLong() : _controller.randLong());
+        List<Callable<Node>> tasks = new ArrayList<>();
+        for (int i = 0; i < _threads; i += 1) {
+            Searcher searcher = new Searcher(position, random.split());
+            tasks.add(() -> searcher.search(iterations, deadline));
+        }
+
+        List<Node> roots = new ArrayList<>();
+        if (_threads == 1) {
+            try {
+                roots.add(tasks.get(0).call());
+            } catch (Exception excp) {
+                throw new IllegalStateException(excp);
+            }
+        } else {
+            if (_pool == null) {
+                _pool = new ForkJoinPool(_threads);
+            }
+            try {
+                for (Future<Node> result : _pool.invokeAll(tasks)) {
+                    roots.add(result.get());
+                }
+            } catch (InterruptedException | ExecutionException excp) {
+                throw new IllegalStateException(excp);
+            }
+        }
+        for (Node root : roots) {
+            _nodes += root._visits;
+        }
+        return Move.mv(mostVisited(roots));
+    }
+
+    /** Counts playouts. */
+    @Override
+    public long nodeCount() {
+        return _nodes;
+    }
+
+    /** Return the encoded move whose total visit count among the
+     *  children of ROOTS is largest. */
+    private static int mostVisited(List<Node> roots) {
+        Map<Integer, Integer> visits = new HashMap<>();
+        int best = 0, bestVisits = -1;
+        for (Node root : roots) {
+            for (Node child : root._children) {
+                int total = visits.merge(child._move, child._visits,
+                                         Integer::sum);
+                if (total > bestVisits) {
+                    best = child._move;
+                    bestVisits = total;
+                }
+            }
+        }
+        return best;
+    }
+
+    /** A node of a search tree: a position reached by making _move. */
+    private static final class Node {
+
+        /** A node reached by MOVE, made by MOVER, from PARENT. */
+        Node(Node parent, int move, Piece mover) {
+            _parent = parent;
+            _move = move;
+            _mover = mover;
+        }
+
+        /** Return my child with the greatest UCT value. */
+        Node select() {
+            double logVisits = log(_visits);
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Node child : _children) {
+                double value = (double) child._wins / child._visits
+                    + EXPLORATION * sqrt(logVisits / child._visits);
+                if (value > bestValue) {
+                    best = child;
+                    bestValue = value;
+                }
+            }
+            return best;
+        }
+
+        /** The node from which I was reached, or null at the root. */
+        private final Node _parent;
+        /** The encoded move that reached me, or 0 at the root. */
+        private final int _move;
+        /** The side that made _move. */
+        private final Piece _mover;
+        /** My expanded children. */
+        private final List<Node> _children = new ArrayList<>();
+        /** My moves with no child yet, in _untried[0 .. _numUntried-1],
+         *  or null if not yet generated. */
+        private int[] _untried;
+        /** Number of moves in _untried. */
+        private int _numUntried;
+        /** Number of playouts through me. */
+        private int _visits;
+        /** Number of those won by _mover. */
+        private int _wins;
+    }
+
+    /** One thread's search: its own tree, board, random numbers, and
+     *  scratch space. */
+    private class Searcher {
+
+        /** A searcher for the position on BOARD using RANDOM. */
+        Searcher(Board board, SplittableRandom random) {
+            _root = new Board(board);
+            _random = random;
+        }
+
+        /** Grow a tree from my position by at most ITERATIONS iterations,
+         *  stopping early when System.nanoTime() passes DEADLINE, and
+         *  return its root.  Always runs at least one iteration. */
+        Node search(int iterations, long deadline) {
+            Node root = new Node(null, 0, _root.turn().opponent());
+            for (int i = 0; i < iterations
+                     && (i == 0 || System.nanoTime() < deadline); i += 1) {
+                _board.copy(_root);
+                Node leaf = descend(root);
+                Piece winner = playout();
+                for (Node node = leaf; node != null; node = node._parent) {
+                    node._visits += 1;
+                    if (node._mover == winner) {
+                        node._wins += 1;
+                    }
+                }
+            }
+            return root;
+        }
+
+        /** Starting with _board at the position of ROOT, follow the UCT
+         *  rule down the tree, making each move on _board, until reaching
+         *  a finished game or a node with untried moves.  In the latter
+         *  case, add a child for one of them at random and make its move.
+         *  Return the last node reached. */
+        private Node descend(Node root) {
+            Node node = root;
+            while (_board.winner() == null) {
+                if (node._untried == null) {
+                    int n = _board.legalMoves(_board.turn(), _moves);
+                    node._untried = Arrays.copyOf(_moves, n);
+                    node._numUntried = n;
+                }
+                if (node._numUntried > 0) {
+                    int k = _random.nextInt(node._numUntried);
+                    int move = node._untried[k];
+                    node._numUntried -= 1;
+                    node._untried[k] = node._untried[node._numUntried];
+                    if (node._numUntried == 0) {
+                        node._untried = EMPTY_MOVES;
+                    }
+                    Node child = new Node(node, move, _board.turn());
+                    node._children.add(child);
+                    _board.makeMove(move);
+                    return child;
+                }
+                node = node.select();
+                _board.makeMove(node._move);
+            }
+            return node;
+        }
+
+        /** Play random moves on _board until the game ends or
+         *  _playoutDepth plies have been made, and return the winner, as
+         *  estimated by the territory evaluator in the latter case. */
+        private Piece playout() {
+            for (int ply = 0; ply < _playoutDepth; ply += 1) {
+                Piece winner = _board.winner();
+                if (winner != null) {
+                    return winner;
+                }
+                int n = _board.queenMoves(_board.turn(), _moves);
+                int queenMove = _moves[_random.nextInt(n)];
+                int m = _board.spearThrows(queenMove, _moves, 0);
+                _board.makeMove(_moves[_random.nextInt(m)]);
+            }
+            Piece winner = _board.winner();
+            if (winner != null) {
+                return winner;
+            }
+            int score = _territory.score(_board);
+            if (score > 0) {
+                return WHITE;
+            } else if (score < 0) {
+                return BLACK;
+            } else {
+                return _board.turn().opponent();
+            }
+        }
+
+        /** The position being searched. */
+        private final Board _root;
+        /** The board on which each iteration is played out. */
+        private final Board _board = new Board();
+        /** My source of random numbers. */
+        private final SplittableRandom _random;
+        /** Evaluator for unfinished playouts. */
+        private final Territory _territory = new Territory();
+        /** Scratch space for generated moves. */
+        private final int[] _moves = new int[Board.MAX_MOVES];
+    }
+
+    /** Weight of the exploration term of the UCT value. */
+    private static final double EXPLORATION = sqrt(2);
+    /** Value of _untried for a node all of whose moves have children. */
+    private static final int[] EMPTY_MOVES = new int[0];
+    /** Nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /** Time limit per move in milliseconds, or 0 for none. */
+    private long _timeLimit;
+    /** Limit on iterations per move, or 0 for none. */
+    private int _iterationLimit;
+    /** Plies after which a playout is evaluated. */
+    private int _playoutDepth;
+    /** Number of search threads. */
+    private int _threads;
+    /** Thread pool used when _threads > 1, created when first needed. */
+    private ForkJoinPool _pool;
+    /** Source of seeds for my searches when I have no Controller. */
+    private final Random _seeds;
+    /** Total number of playouts in my searches. */
+    private long _nodes;
+}
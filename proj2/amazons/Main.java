@@ -19,10 +19,31 @@ public class Main {
     public static void main(String... args) {
 
         CommandArgs options =
-            new CommandArgs("--display --log={0,1} --={0,2}", args);
+            new CommandArgs("--display --log={0,1} --hash=(\\d+){0,1} "
+                            + "--evalcache=(\\d+){0,1} --weights={0,1} "
+                            + "--replace=(always|depth){0,1} "
+                            + "--time=(\\d+){0,1} --threads=(\\d+){0,1} "
+                            + "--parallel=(split|lazy){0,1} "
+                            + "--arrows=(\\d+){0,1} "
+                            + "--aspiration=(\\d+){0,1} --nopvs "
+                            + "--player=(ai|mcts){0,1} "
+                            + "--iterations=(\\d+){0,1} "
+                            + "--playout=(\\d+){0,1} --book={0,1} "
+                            + "--ponder --={0,2}",
+                            args);
         if (!options.ok()) {
             System.err.println("Usage: java amazons.Main [--display]"
-                               + " [--log=FILE] [INPUT [OUTPUT]]");
+                               + " [--log=FILE] [--hash=MB]"
+                               + " [--evalcache=MB] [--weights=FILE]"
+                               + " [--replace=always|depth]"
+                               + " [--time=MILLIS] [--threads=N]"
+                               + " [--parallel=split|lazy]"
+                               + " [--arrows=N]"
+                               + " [--aspiration=N] [--nopvs]"
+                               + " [--player=ai|mcts] [--iterations=N]"
+                               + " [--playout=N]"
+                               + " [--book=FILE] [--ponder]"
+                               + " [INPUT [OUTPUT]]");
             System.exit(1);
         }
 
@@ -83,6 +104,102 @@ public class Main {
             }
         }
 
-        return new Controller(view, log, reporter, manualPlayer, new AI());
+        Player autoPlayer;
+        if (options.contains("--player")
+            && options.getFirst("--player").equals("mcts")) {
+            autoPlayer = getMCTSPlayer(options);
+        } else {
+            autoPlayer = getAI(options);
+        }
+        return new Controller(view, log, reporter, manualPlayer,
+                              autoPlayer);
+    }
+
+    /** Return an MCTSPlayer template configured as indicated by
+     *  OPTIONS. */
+    private static MCTSPlayer getMCTSPlayer(CommandArgs options) {
+        MCTSPlayer player = new MCTSPlayer();
+        if (options.contains("--iterations")) {
+            player.setIterationLimit(
+                Integer.parseInt(options.getFirst("--iterations")));
+            player.setTimeLimit(0);
+        }
+        if (options.contains("--time")) {
+            player.setTimeLimit(Long.parseLong(options.getFirst("--time")));
+        }
+        if (options.contains("--threads")) {
+            player.setThreads(
+                Integer.parseInt(options.getFirst("--threads")));
+        }
+        if (options.contains("--playout")) {
+            player.setPlayoutDepth(
+                Integer.parseInt(options.getFirst("--playout")));
+        }
+        return player;
+    }
+
+    /** Return an AI template configured as indicated by OPTIONS. */
+    private static AI getAI(CommandArgs options) {
+        AI ai = new AI();
+        if (options.contains("--hash") || options.contains("--replace")) {
+            int megabytes = AI.DEFAULT_TABLE_MEGABYTES;
+            if (options.contains("--hash")) {
+                megabytes = Integer.parseInt(options.getFirst("--hash"));
+            }
+            TranspositionTable.Replacement policy =
+                TranspositionTable.Replacement.DEPTH_PREFERRED;
+            if (options.contains("--replace")
+                && options.getFirst("--replace").equals("always")) {
+                policy = TranspositionTable.Replacement.ALWAYS;
+            }
+            ai.setTableSize(megabytes, policy);
+        }
+        if (options.contains("--evalcache")) {
+            ai.setEvalCacheSize(
+                Integer.parseInt(options.getFirst("--evalcache")));
+        }
+        if (options.contains("--weights")) {
+            try {
+                ai.setWeights(Tuner.readWeights(options.getFirst("--weights")));
+            } catch (IOException excp) {
+                throw error("Could not read weights: %s", excp.getMessage());
+            }
+        }
+        if (options.contains("--time")) {
+            ai.setTimeLimit(Long.parseLong(options.getFirst("--time")));
+        }
+        if (options.contains("--threads")) {
+            AI.Parallelism parallelism = AI.Parallelism.ROOT_SPLIT;
+            if (options.contains("--parallel")
+                && options.getFirst("--parallel").equals("lazy")) {
+                parallelism = AI.Parallelism.LAZY_SMP;
+            }
+            ai.setThreads(Integer.parseInt(options.getFirst("--threads")),
+                          parallelism);
+        }
+        if (options.contains("--arrows")) {
+            ai.setTwoStage(true,
+                           Integer.parseInt(options.getFirst("--arrows")));
+        }
+        if (options.contains("--aspiration")
+            || options.contains("--nopvs")) {
+            int aspiration = AI.DEFAULT_ASPIRATION;
+            if (options.contains("--aspiration")) {
+                aspiration =
+                    Integer.parseInt(options.getFirst("--aspiration"));
+            }
+            ai.setPrincipalVariation(!options.contains("--nopvs"),
+                                     aspiration);
+        }
+        ai.setPondering(options.contains("--ponder"));
+        if (options.contains("--book")) {
+            try {
+                ai.setOpeningBook(
+                    new OpeningBook(options.getFirst("--book")));
+            } catch (IOException excp) {
+                throw error("Could not open opening book");
+            }
+        }
+        return ai;
     }
 }
@@ -0,0 +1,346 @@
+package amazons;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ucb.util.CommandArgs;
+
+import static amazons.Piece.*;
+
+/** A headless runner for matches between two automated players.  Games
+ *  are played in pairs: both games of a pair start from the same random
+ *  opening, and each player has white in one of them.  The openings are
+ *  determined by a seed.  Games are played directly on Boards, without a
+ *  Controller, by engines made fresh for each game from two templates
+ *  (see Engine), so that several games can run at once.
+ *  <p>
+ *  A match reports each player's wins, the Elo difference implied by the
+ *  first player's score with a 95% confidence interval (see
+ *  scoreBound), each player's positions searched per second of thinking,
+ *  percentiles of the time each took per move, and, for an AI, the
+ *  fraction of its static evaluations found in its evaluation cache.
+ *  @author Tony Tu
+ */
+public class MatchRunner {
+
+    /** Default number of games in a match. */
+    static final int DEFAULT_GAMES = 100;
+    /** Default search time per move, in milliseconds. */
+    static final long DEFAULT_TIME_LIMIT = 100;
+    /** Number of random moves at the start of each game. */
+    static final int OPENING_PLIES = 2;
+
+    /** Play a match as directed by ARGS, which may contain the options
+     *  --first=ai|mcts and --second=ai|mcts (the kinds of the two
+     *  players, by default AIs), --weights1=FILE and --weights2=FILE
+     *  (evaluator weights for an AI, as written by Tuner), --games=N
+     *  (games in the match, rounded up to an even number), --time=MILLIS
+     *  (search time per move), --threads=N (games played at once, by
+     *  default one per processor), and --seed=N (random seed). */
+    public static void main(String... args) {
+        CommandArgs options =
+            new CommandArgs("--first=(ai|mcts){0,1} --second=(ai|mcts){0,1} "
+                            + "--weights1={0,1} --weights2={0,1} "
+                            + "--games=(\\d+){0,1} --time=(\\d+){0,1} "
+                            + "--threads=(\\d+){0,1} --seed=(\\d+){0,1}",
+                            args);
+        if (!options.ok()) {
+            System.err.println("Usage: java amazons.MatchRunner"
+                               + " [--first=ai|mcts] [--second=ai|mcts]"
+                               + " [--weights1=FILE] [--weights2=FILE]"
+                               + " [--games=N] [--time=MILLIS]"
+                               + " [--threads=N] [--seed=N]");
+            System.exit(1);
+        }
+        long timeLimit = DEFAULT_TIME_LIMIT;
+        if (options.contains("--time")) {
+            timeLimit = Long.parseLong(options.getFirst("--time"));
+        }
+        int games = DEFAULT_GAMES;
+        if (options.contains("--games")) {
+            games = Integer.parseInt(options.getFirst("--games"));
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (options.contains("--threads")) {
+            threads =
+                Math.max(1, Integer.parseInt(options.getFirst("--threads")));
+        }
+        long seed = System.nanoTime();
+        if (options.contains("--seed")) {
+            seed = Long.parseLong(options.getFirst("--seed"));
+        }
+        Engine first, second;
+        try {
+            first = template(options.getFirst("--first"),
+                             options.getFirst("--weights1"), timeLimit);
+            second = template(options.getFirst("--second"),
+                              options.getFirst("--weights2"), timeLimit);
+        } catch (IOException excp) {
+            System.err.printf("Could not read weights: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+            return;
+        }
+        MatchRunner runner = new MatchRunner(first, second, threads, seed);
+        runner.play((games + 1) / 2);
+        runner.report();
+    }
+
+    /** Return a template for players of the kind named KIND ("ai",
+     *  "mcts", or null for "ai"), taking about MILLIS milliseconds per
+     *  move, and, for an AI, using the evaluator weights in the file
+     *  named WEIGHTS, unless it is null. */
+    private static Engine template(String kind, String weights, long millis)
+        throws IOException {
+        if ("mcts".equals(kind)) {
+            MCTSPlayer player = new MCTSPlayer();
+            player.setTimeLimit(millis);
+            return player;
+        }
+        AI player = new AI();
+        player.setTimeLimit(millis);
+        if (weights != null) {
+            player.setWeights(Tuner.readWeights(weights));
+        }
+        return player;
+    }
+
+    /** A runner for matches between players made from the templates
+     *  FIRST and SECOND, playing THREADS games at once.  Its random
+     *  choices are determined by SEED. */
+    MatchRunner(Engine first, Engine second, int threads, long seed) {
+        _templates = new Engine[] { first, second };
+        _threads = threads;
+        _random = new Random(seed);
+    }
+
+    /** Play PAIRS pairs of games, adding their results to my totals. */
+    void play(int pairs) {
+        List<Callable<Game>> tasks = new ArrayList<>();
+        for (int k = 0; k < pairs; k += 1) {
+            Board opening = opening(_random.nextLong());
+            for (int white = 0; white < 2; white += 1) {
+                Engine[] players = new Engine[2];
+                for (int p = 0; p < 2; p += 1) {
+                    Piece color = (p == white) ? WHITE : BLACK;
+                    players[p] = _templates[p].createEngine(color);
+                }
+                int whitePlayer = white;
+                tasks.add(() -> new Game(opening, players, whitePlayer));
+            }
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        try {
+            for (Future<Game> result : pool.invokeAll(tasks)) {
+                add(result.get());
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Print my totals on the standard output. */
+    void report() {
+        int games = _wins[0] + _wins[1];
+        System.out.printf("%d games: first %d wins, second %d wins%n",
+                          games, _wins[0], _wins[1]);
+        if (games == 0) {
+            return;
+        }
+        double score = (double) _wins[0] / games;
+        System.out.printf("Elo difference: %s (95%% interval %s to %s)%n",
+                          formatElo(elo(score)),
+                          formatElo(elo(scoreBound(_wins[0], games, -1))),
+                          formatElo(elo(scoreBound(_wins[0], games, 1))));
+        for (int p = 0; p < 2; p += 1) {
+            long[] latencies = Arrays.copyOf(_latencies[p], _moves[p]);
+            Arrays.sort(latencies);
+            System.out.printf("%s: %.0f nodes/s; move time ms: "
+                              + "p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                              p == 0 ? "first" : "second",
+                              _thinking[p] == 0 ? 0.0
+                              : _nodes[p] * 1e9 / _thinking[p],
+                              percentile(latencies, 50),
+                              percentile(latencies, 90),
+                              percentile(latencies, 99),
+                              percentile(latencies, 100));
+            long probes = _cacheHits[p] + _cacheMisses[p];
+            if (probes > 0) {
+                System.out.printf("%s: eval cache hits %.1f%% of %d%n",
+                                  p == 0 ? "first" : "second",
+                                  100.0 * _cacheHits[p] / probes, probes);
+            }
+        }
+    }
+
+    /** Return the number of games won by the first (if P is 0) or second
+     *  (if P is 1) player so far. */
+    int wins(int p) {
+        return _wins[p];
+    }
+
+    /** Return the Elo rating difference that gives an expected score
+     *  (fraction of games won) of SCORE.  Returns infinite values for
+     *  scores of 0 or less and 1 or more. */
+    static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        } else if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return ELO_SCALE * Math.log10(score / (1 - score));
+    }
+
+    /** Return the lower (if SIDE is -1) or upper (if SIDE is 1) end of
+     *  the 95% Wilson score interval for the expected score of a player
+     *  who won WINS of GAMES games.  Unlike the normal approximation, it
+     *  stays within [0, 1] and is not empty when WINS is 0 or GAMES: a
+     *  player who won every game gets an upper end of 1 but a lower end
+     *  below it. */
+    static double scoreBound(int wins, int games, int side) {
+        double score = (double) wins / games,
+            z2 = CONFIDENCE_Z * CONFIDENCE_Z,
+            center = score + z2 / (2 * games),
+            margin = CONFIDENCE_Z
+                * Math.sqrt(score * (1 - score) / games
+                            + z2 / (4.0 * games * games));
+        return (center + side * margin) / (1 + z2 / games);
+    }
+
+    /** Return ELO formatted for report. */
+    private static String formatElo(double elo) {
+        if (Double.isInfinite(elo)) {
+            return elo > 0 ? "+inf" : "-inf";
+        }
+        return String.format("%+.1f", elo);
+    }
+
+    /** Return the Pth percentile (0 < P <= 100) of the sorted times in
+     *  nanoseconds LATENCIES, in milliseconds, or 0 if there are none. */
+    private static double percentile(long[] latencies, int p) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int k = (int) Math.ceil(p / 100.0 * latencies.length) - 1;
+        return latencies[Math.max(0, k)] / 1e6;
+    }
+
+    /** Return the position after OPENING_PLIES random moves from the
+     *  initial position, chosen using SEED. */
+    private static Board opening(long seed) {
+        Board board = new Board();
+        Random random = new Random(seed);
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < OPENING_PLIES; k += 1) {
+            int n = board.legalMoves(board.turn(), moves);
+            board.makeMove(moves[random.nextInt(n)]);
+        }
+        return board;
+    }
+
+    /** Add the results of GAME to my totals. */
+    private void add(Game game) {
+        for (int p = 0; p < 2; p += 1) {
+            if (game._winner == p) {
+                _wins[p] += 1;
+            }
+            _nodes[p] += game._nodes[p];
+            _cacheHits[p] += game._cacheHits[p];
+            _cacheMisses[p] += game._cacheMisses[p];
+            _thinking[p] += game._thinking[p];
+            int n = game._latencies[p].length;
+            if (_moves[p] + n > _latencies[p].length) {
+                _latencies[p] = Arrays.copyOf(_latencies[p],
+                                              2 * (_moves[p] + n));
+            }
+            System.arraycopy(game._latencies[p], 0, _latencies[p],
+                             _moves[p], n);
+            _moves[p] += n;
+        }
+    }
+
+    /** The record of one finished game. */
+    private static class Game {
+
+        /** Play out a game from OPENING between PLAYERS[0] and
+         *  PLAYERS[1], of which PLAYERS[WHITE] plays white, recording
+         *  the results.  Clears PLAYERS at the end, so that the players'
+         *  tables do not outlive the game. */
+        Game(Board opening, Engine[] players, int white) {
+            Board board = new Board(opening);
+            long[][] latencies = new long[2][Board.SIZE * Board.SIZE];
+            int[] moves = new int[2];
+            while (board.winner() == null) {
+                int p = board.turn() == WHITE ? white : 1 - white;
+                long start = System.nanoTime();
+                Move move = players[p].findMove(board);
+                long time = System.nanoTime() - start;
+                latencies[p][moves[p]] = time;
+                moves[p] += 1;
+                _thinking[p] += time;
+                board.makeMove(move.code());
+            }
+            for (int p = 0; p < 2; p += 1) {
+                _nodes[p] = players[p].nodeCount();
+                if (players[p] instanceof AI) {
+                    AI ai = (AI) players[p];
+                    _cacheHits[p] = ai.evalCacheCount(true);
+                    _cacheMisses[p] = ai.evalCacheCount(false);
+                }
+                players[p] = null;
+                _latencies[p] = Arrays.copyOf(latencies[p], moves[p]);
+            }
+            _winner = board.winner() == WHITE ? white : 1 - white;
+        }
+
+        /** 0 if the first player won, 1 if the second did. */
+        private final int _winner;
+        /** Positions examined by each player. */
+        private final long[] _nodes = new long[2];
+        /** Evaluation cache hits and misses of each player, if an AI. */
+        private final long[] _cacheHits = new long[2],
+            _cacheMisses = new long[2];
+        /** Total nanoseconds spent choosing moves by each player. */
+        private final long[] _thinking = new long[2];
+        /** Nanoseconds spent choosing each move by each player. */
+        private final long[][] _latencies = new long[2][];
+    }
+
+    /** Number of standard errors on each side of a 95% confidence
+     *  interval. */
+    private static final double CONFIDENCE_Z = 1.96;
+    /** Elo difference at which the stronger player is expected to score
+     *  10 times as much as the weaker. */
+    private static final double ELO_SCALE = 400;
+
+    /** Exemplars of the first and second players. */
+    private final Engine[] _templates;
+    /** Number of games played at once. */
+    private final int _threads;
+    /** Source of seeds for openings. */
+    private final Random _random;
+    /** Games won by each player. */
+    private final int[] _wins = new int[2];
+    /** Positions examined by each player. */
+    private final long[] _nodes = new long[2];
+    /** Evaluation cache hits and misses of each player that is an AI. */
+    private final long[] _cacheHits = new long[2],
+        _cacheMisses = new long[2];
+    /** Total nanoseconds spent choosing moves by each player. */
+    private final long[] _thinking = new long[2];
+    /** Nanoseconds spent on each move by each player, in
+     *  _latencies[p][0 .. _moves[p] - 1]. */
+    private final long[][] _latencies = new long[2][0];
+    /** Number of moves made by each player. */
+    private final int[] _moves = new int[2];
+}
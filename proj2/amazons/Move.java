@@ -6,10 +6,11 @@ import java.util.regex.Matcher;
 import static amazons.Square.sq;
 import static amazons.Square.SQ;
 
-/** A move in the game of Amazons. As for Squares, Moves are immutable
- *  and unique: there is only one move object for each possible move
- *  (generated by the factory method  mv, the constructor being private).
- *  As for Squares, you can freely use == to compare Moves.
+/** A move in the game of Amazons. Moves are immutable and are generated
+ *  by the factory methods mv (the constructor being private).  Unlike
+ *  Squares, Moves are not unique: compare them with equals.  Inside the
+ *  engine, moves are represented by their int encodings (see encode),
+ *  and Move objects are created only when talking to players and views.
  *  @author P. N. Hilfinger
  */
 final class Move {
@@ -37,25 +38,55 @@ final class Move {
         return _spear;
     }
 
-    /** Return the unique Move FROM-TO(SPEAR). */
+    /** Return the int encoding of the move FROM-TO(SPEAR), where FROM,
+     *  TO, and SPEAR are square indices. */
+    static int encode(int from, int to, int spear) {
+        return from | (to << SQ_BITS) | (spear << (2 * SQ_BITS));
+    }
+
+    /** Return the index of the square moved from in the encoded move
+     *  MOVE. */
+    static int from(int move) {
+        return move & SQ_MASK;
+    }
+
+    /** Return the index of the square moved to in the encoded move
+     *  MOVE. */
+    static int to(int move) {
+        return (move >>> SQ_BITS) & SQ_MASK;
+    }
+
+    /** Return the index of the spear's destination in the encoded move
+     *  MOVE. */
+    static int spear(int move) {
+        return (move >>> (2 * SQ_BITS)) & SQ_MASK;
+    }
+
+    /** Return my int encoding (see encode). */
+    int code() {
+        return _code;
+    }
+
+    /** Return the Move FROM-TO(SPEAR). */
     static Move mv(Square from, Square to, Square spear) {
-        if (MOVES[from.index()][to.index()][spear.index()] == null) {
-            MOVES[from.index()][to.index()][spear.index()] =
-                new Move(from, to, spear);
-        }
-        return MOVES[from.index()][to.index()][spear.index()];
+        return new Move(from, to, spear);
+    }
+
+    /** Return the Move whose int encoding is CODE. */
+    static Move mv(int code) {
+        return mv(sq(from(code)), sq(to(code)), sq(spear(code)));
     }
 
     /** Return the Move denoted by STR, if STR denotes a move with
      *  valid syntax in which the piece move and spear throw are proper
      *  queen moves, and null otherwise. */
     static Move mv(String str) {
-        _moveMatcher.reset(str);
-        if (_moveMatcher.matches()) {
-            int k = _moveMatcher.group(1) != null ? 1 : 4;
-            Square from = sq(_moveMatcher.group(k)),
-                to = sq(_moveMatcher.group(k + 1)),
-                spear = sq(_moveMatcher.group(k + 2));
+        Matcher moveMatcher = MOVE_PATTERN.matcher(str);
+        if (moveMatcher.matches()) {
+            int k = moveMatcher.group(1) != null ? 1 : 4;
+            Square from = sq(moveMatcher.group(k)),
+                to = sq(moveMatcher.group(k + 1)),
+                spear = sq(moveMatcher.group(k + 2));
             if (from.isQueenMove(to) && to.isQueenMove(spear)) {
                 return mv(from, to, spear);
             }
@@ -66,29 +97,46 @@ final class Move {
     /** Return true iff STR has the right format for a Move, ignoring whether
      *  its piece-move and spear-throw are valid queen moves. */
     static boolean isGrammaticalMove(String str) {
-        _moveMatcher.reset(str);
-        return _moveMatcher.matches();
+        return MOVE_PATTERN.matcher(str).matches();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Move && ((Move) obj)._code == _code;
+    }
+
+    @Override
+    public int hashCode() {
+        return _code;
     }
 
     @Override
     public String toString() {
-        return _str;
+        String str = _str;
+        if (str == null) {
+            str = _from + "-" + _to + "(" + _spear + ")";
+            _str = str;
+        }
+        return str;
     }
 
     /** Construct the Move FROM-TO(SPEAR). */
     private Move(Square from, Square to, Square spear) {
         _from = from; _to = to; _spear = spear;
-        _str = String.format("%s-%s(%s)", from, to, spear);
+        _code = encode(from.index(), to.index(), spear.index());
     }
 
-    /** The cache of all Moves created. */
-    private static final Move[][][] MOVES = new Move[100][100][100];
+    /** Number of bits used for each square index in an encoded move. */
+    private static final int SQ_BITS = 7;
+    /** Mask selecting one square index of an encoded move. */
+    private static final int SQ_MASK = (1 << SQ_BITS) - 1;
 
     /** The components of a Move. */
     private final Square _from, _to, _spear;
-    /** The printed form of a Move. */
+    /** My int encoding. */
+    private final int _code;
+    /** My text, or null until toString first builds it.  Threads that
+     *  share a Move may each build it, harmlessly. */
     private String _str;
-    /**  A utility Matcher for moves, using MOVE_PATTERN. */
-    private static Matcher _moveMatcher = MOVE_PATTERN.matcher("");
 }
 
@@ -0,0 +1,108 @@
+package amazons;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** A read-only table of book moves for opening positions, kept in a file
+ *  that is mapped into memory rather than read.  The file is a sequence
+ *  of RECORD_BYTES-byte records, each holding a position's hash (see
+ *  Board.hash) as a long, followed by the encoded move to play there (see
+ *  Move.encode) and the value found for it (positive if it favors white)
+ *  as ints, all big-endian.  The records are sorted by hash, so that
+ *  lookups are binary searches in the mapped file.  Opening a book thus
+ *  reads nothing, and looking up a position allocates nothing.
+ *  <p>
+ *  Books are built by BookBuilder.
+ *  @author Tony Tu
+ */
+class OpeningBook {
+
+    /** Number of bytes in one record of a book file. */
+    static final int RECORD_BYTES = Long.BYTES + 2 * Integer.BYTES;
+
+    /** A book mapped from the file named FILENAME. */
+    OpeningBook(String fileName) throws IOException {
+        try (FileChannel channel =
+                 FileChannel.open(Paths.get(fileName),
+                                  StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % RECORD_BYTES != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("malformed opening book: " + fileName);
+            }
+            _records = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            _size = (int) (size / RECORD_BYTES);
+        }
+    }
+
+    /** Return the number of positions in this book. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the encoded book move for the position with hash KEY, or 0
+     *  if there is none. */
+    int move(long key) {
+        int k = find(key);
+        return k < 0 ? 0 : _records.getInt(k * RECORD_BYTES + Long.BYTES);
+    }
+
+    /** Return the value recorded for the book move for the position with
+     *  hash KEY, or 0 if there is none. */
+    int score(long key) {
+        int k = find(key);
+        return k < 0 ? 0
+            : _records.getInt(k * RECORD_BYTES + Long.BYTES
+                              + Integer.BYTES);
+    }
+
+    /** Return the index of the record for hash KEY, or -1 if there is
+     *  none. */
+    private int find(long key) {
+        int lo = 0, hi = _size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midKey = _records.getLong(mid * RECORD_BYTES);
+            if (midKey < key) {
+                lo = mid + 1;
+            } else if (midKey > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Write a book file named FILENAME holding the first N entries of
+     *  KEYS, MOVES, and SCORES, which give the hash, encoded book move,
+     *  and value of each position.  The keys must be distinct. */
+    static void write(String fileName, long[] keys, int[] moves,
+                      int[] scores, int n) throws IOException {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> Long.compare(keys[i], keys[j]));
+        try (DataOutputStream out =
+                 new DataOutputStream(new BufferedOutputStream(
+                     new FileOutputStream(fileName)))) {
+            for (int i : order) {
+                out.writeLong(keys[i]);
+                out.writeInt(moves[i]);
+                out.writeInt(scores[i]);
+            }
+        }
+    }
+
+    /** The mapped contents of the book file. */
+    private final MappedByteBuffer _records;
+    /** Number of records in _records. */
+    private final int _size;
+}
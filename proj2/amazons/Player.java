@@ -36,6 +36,16 @@ abstract class Player {
      *  is not null. */
     abstract String myMove();
 
+    /** Note that MOVE has just been made on board(), by either side.
+     *  Does nothing by default. */
+    void notifyMove(Move move) {
+    }
+
+    /** Stop any work I am doing in the background, since its results
+     *  will not be needed.  Does nothing by default. */
+    void stop() {
+    }
+
     /** My Controller. */
     protected Controller _controller;
     /** The Piece I play (WHITE or BLACK). */
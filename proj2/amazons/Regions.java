@@ -0,0 +1,206 @@
+package amazons;
+
+import java.util.Arrays;
+
+import static amazons.Piece.*;
+
+/** An analysis of the regions (see Board.regions) of a position.  A
+ *  region holding amazons of both sides is contested.  One holding
+ *  amazons of only one side belongs to that side, which alone can ever
+ *  move there; at best, each of its empty squares gives its owner one
+ *  more move.  Once no region is contested, the outcome depends only on
+ *  how many moves each side can make in its own regions: the side to
+ *  move wins iff it can make more moves than its opponent.
+ *  <p>
+ *  An analysis keeps its arrays between uses, so that analyzing
+ *  allocates nothing.  It is therefore not safe to share one among
+ *  threads.
+ *  @author Tony Tu
+ */
+class Regions {
+
+    /** Regions with at most this many empty squares are filled exactly
+     *  by exactFillable. */
+    static final int EXACT_LIMIT = 12;
+
+    /** Analyze BOARD, replacing any previous analysis. */
+    void analyze(Board board) {
+        _count = board.regions(_regionOf);
+        Arrays.fill(_empty, 0, _count, 0);
+        Arrays.fill(_white, 0, _count, 0);
+        Arrays.fill(_black, 0, _count, 0);
+        for (int k = 0; k < SQUARES; k += 1) {
+            int r = _regionOf[k];
+            if (r >= 0) {
+                Piece p = board.board(k);
+                if (p == EMPTY) {
+                    _empty[r] += 1;
+                } else if (p == WHITE) {
+                    _white[r] += 1;
+                } else {
+                    _black[r] += 1;
+                }
+            }
+        }
+        _contested = _owned = 0;
+        for (int r = 0; r < _count; r += 1) {
+            if (_white[r] > 0 && _black[r] > 0) {
+                _contested += 1;
+            } else if (_white[r] > 0 || _black[r] > 0) {
+                _owned += 1;
+            }
+        }
+    }
+
+    /** Return the number of contested regions. */
+    int contestedCount() {
+        return _contested;
+    }
+
+    /** Return the number of regions that belong to one side. */
+    int ownedCount() {
+        return _owned;
+    }
+
+    /** Return true iff square index K lies in a contested region. */
+    boolean contested(int k) {
+        int r = _regionOf[k];
+        return r >= 0 && _white[r] > 0 && _black[r] > 0;
+    }
+
+    /** Return the number of empty squares in the regions that belong to
+     *  SIDE: an upper bound on the number of moves SIDE can make in
+     *  them. */
+    int fillable(Piece side) {
+        int[] mine = side == WHITE ? _white : _black,
+            theirs = side == WHITE ? _black : _white;
+        int result = 0;
+        for (int r = 0; r < _count; r += 1) {
+            if (mine[r] > 0 && theirs[r] == 0) {
+                result += _empty[r];
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of moves SIDE can make in the regions that
+     *  belong to it on BOARD, which must be the board last analyzed.
+     *  Regions with at most EXACT_LIMIT empty squares are solved by
+     *  trying sequences of moves (giving up on a region after
+     *  NODE_LIMIT positions with the best count found so far); larger
+     *  ones count all their empty squares.  BOARD is left as it was
+     *  found. */
+    int exactFillable(Board board, Piece side) {
+        return exactFillable(board, side, Long.MAX_VALUE);
+    }
+
+    /** Return a number of moves that SIDE is sure to be able to make in
+     *  the regions that belong to it on BOARD, which must be the board
+     *  last analyzed: for each region, the most moves in succession,
+     *  up to EXACT_LIMIT, found there within NODE_LIMIT positions.
+     *  Unlike fillable, this is a lower bound, so regions in which some
+     *  empty squares cannot all be used do not count them.  BOARD is
+     *  left as it was found. */
+    int surelyFillable(Board board, Piece side) {
+        _deadline = Long.MAX_VALUE;
+        _timedOut = false;
+        int[] mine = side == WHITE ? _white : _black,
+            theirs = side == WHITE ? _black : _white;
+        int result = 0;
+        for (int r = 0; r < _count; r += 1) {
+            if (mine[r] > 0 && theirs[r] == 0) {
+                _nodes = 0;
+                result += fill(board, side, r,
+                               Math.min(_empty[r], EXACT_LIMIT), 0);
+            }
+        }
+        return result;
+    }
+
+    /** Return exactFillable(BOARD, SIDE), or -1 if the value of
+     *  System.nanoTime() reaches DEADLINE before it is found. */
+    int exactFillable(Board board, Piece side, long deadline) {
+        _deadline = deadline;
+        _timedOut = false;
+        int[] mine = side == WHITE ? _white : _black,
+            theirs = side == WHITE ? _black : _white;
+        int result = 0;
+        for (int r = 0; r < _count; r += 1) {
+            if (mine[r] > 0 && theirs[r] == 0) {
+                if (_empty[r] <= EXACT_LIMIT) {
+                    _nodes = 0;
+                    result += fill(board, side, r, _empty[r], 0);
+                    if (_timedOut) {
+                        return -1;
+                    }
+                } else {
+                    result += _empty[r];
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the greatest number of moves, up to LIMIT, that SIDE can
+     *  make in succession on BOARD with its amazons in region R, where
+     *  PLY is the number of such moves already made.  Sets _timedOut
+     *  and returns a meaningless value if _deadline passes. */
+    private int fill(Board board, Piece side, int r, int limit, int ply) {
+        if (limit == 0 || _nodes >= NODE_LIMIT || _timedOut) {
+            return 0;
+        }
+        _nodes += 1;
+        if ((_nodes & (CHECK_INTERVAL - 1)) == 0
+            && System.nanoTime() >= _deadline) {
+            _timedOut = true;
+            return 0;
+        }
+        if (_moveBuffers[ply] == null) {
+            _moveBuffers[ply] = new int[Board.MAX_MOVES];
+        }
+        int[] moves = _moveBuffers[ply];
+        int n = board.legalMoves(side, moves);
+        Piece turn = board.turn();
+        int best = 0;
+        for (int i = 0; i < n && best < limit; i += 1) {
+            if (_regionOf[Move.from(moves[i])] == r) {
+                board.changeTurn(side);
+                board.makeMove(moves[i]);
+                best = Math.max(best,
+                                1 + fill(board, side, r, limit - 1, ply + 1));
+                board.undo();
+            }
+        }
+        board.changeTurn(turn);
+        return best;
+    }
+
+    /** Number of squares on a board. */
+    private static final int SQUARES = Board.SIZE * Board.SIZE;
+    /** Most positions examined when solving one region exactly. */
+    private static final int NODE_LIMIT = 1 << 14;
+    /** Number of positions examined between checks of the clock. */
+    private static final int CHECK_INTERVAL = 1 << 6;
+
+    /** Region number of each square (see Board.regions). */
+    private final int[] _regionOf = new int[SQUARES];
+    /** Number of regions. */
+    private int _count;
+    /** Numbers of empty squares, white amazons, and black amazons in
+     *  each region. */
+    private final int[]
+        _empty = new int[SQUARES],
+        _white = new int[SQUARES],
+        _black = new int[SQUARES];
+    /** Numbers of contested and owned regions. */
+    private int _contested, _owned;
+    /** Positions examined so far in the current exact solution. */
+    private int _nodes;
+    /** Value of System.nanoTime() at which the current exact solution is
+     *  abandoned. */
+    private long _deadline;
+    /** True iff the current exact solution was abandoned. */
+    private boolean _timedOut;
+    /** Move buffers for each ply of an exact solution. */
+    private final int[][] _moveBuffers = new int[EXACT_LIMIT][];
+}
@@ -46,11 +46,7 @@ final class Square {
 
     /** Return true iff THIS - TO is a valid queen move. */
     boolean isQueenMove(Square to) {
-        int dc = to.col() - this.col();
-        int dr = to.row() - this.row();
-        return exists(to.col(), to.row())
-                && this != to
-                && ((dc == 0 || dr == 0) || (dc == dr || dc == -dr));
+        return DIRECTION[_index][to._index] != NO_DIRECTION;
     }
 
     /** Definitions of direction for queenMove.  DIR[k] = (dcol, drow)
@@ -69,34 +65,35 @@ final class Square {
     Square queenMove(int dir, int steps) {
         if (dir < 0 || dir > 7) {
             return null;
-        } else if (!exists(this.col() + (DIR[dir][0] * steps),
-                this.row() + (DIR[dir][1] * steps))) {
+        }
+        Square[] ray = RAYS[_index][dir];
+        if (steps == 0) {
+            return this;
+        } else if (steps < 0 || steps > ray.length) {
             return null;
         } else {
-            return sq(this.col() + (DIR[dir][0] * steps),
-                    this.row() + (DIR[dir][1] * steps));
+            return ray[steps - 1];
         }
     }
 
+    /** Return the Squares reached by moving 1, 2, ... steps from me in
+     *  direction DIR (0 <= DIR < 8), in that order, up to the edge of
+     *  the board.  The result is shared and must not be modified. */
+    Square[] ray(int dir) {
+        return RAYS[_index][dir];
+    }
+
     /** Return the direction (an int as defined in the documentation
      *  for queenMove) of the queen move THIS-TO. */
     int direction(Square to) {
-        assert isQueenMove(to) && exists(to.col(), to.row());
-        int dx = to.col() - this.col();
-        if (dx != 0) {
-            dx = dx / Math.abs(dx);
-        }
-        int dy = to.row() - this.row();
-        if (dy != 0) {
-            dy = dy / Math.abs(dy);
-        }
-        int[] temp = {dx, dy};
-        int result = 8;
-        for (int i = 0; i < 8; i++) {
-            if (DIR[i][0] == temp[0] && DIR[i][1] == temp[1]) {
-                result = i;
-            }
-        } return result;
+        assert isQueenMove(to);
+        return DIRECTION[_index][to._index];
+    }
+
+    /** Return the number of steps in the queen move THIS-TO. */
+    int distance(Square to) {
+        assert isQueenMove(to);
+        return DISTANCE[_index][to._index];
     }
 
     @Override
@@ -146,8 +143,6 @@ final class Square {
 
     /** Return the Square with index INDEX. */
     private Square(int index) {
-        colLetters =
-                new String[] {"a", "b", "c", "d", "e", "f", "g", "h", "i", "j"};
         _index = index;
         _row = index / 10;
         _col = index % 10;
@@ -168,6 +163,50 @@ final class Square {
         }
     }
 
+    /** Value in DIRECTION for pairs of squares that are not a queen move
+     *  apart. */
+    private static final int NO_DIRECTION = -1;
+
+    /** RAYS[k][d] is the ray of Squares from the square with index k in
+     *  direction d, nearest first (see ray). */
+    private static final Square[][][] RAYS =
+        new Square[Board.SIZE * Board.SIZE][8][];
+
+    /** DIRECTION[j][k] is the direction of the queen move from square
+     *  index j to square index k, or NO_DIRECTION if there is none. */
+    private static final byte[][] DIRECTION =
+        new byte[Board.SIZE * Board.SIZE][Board.SIZE * Board.SIZE];
+
+    /** DISTANCE[j][k] is the number of steps in the queen move from
+     *  square index j to square index k, or 0 if there is none. */
+    private static final byte[][] DISTANCE =
+        new byte[Board.SIZE * Board.SIZE][Board.SIZE * Board.SIZE];
+
+    static {
+        for (byte[] row : DIRECTION) {
+            Arrays.fill(row, (byte) NO_DIRECTION);
+        }
+        for (Square from : SQUARES) {
+            for (int dir = 0; dir < 8; dir += 1) {
+                int len = 0;
+                while (exists(from._col + DIR[dir][0] * (len + 1),
+                              from._row + DIR[dir][1] * (len + 1))) {
+                    len += 1;
+                }
+                Square[] ray = new Square[len];
+                for (int steps = 1; steps <= len; steps += 1) {
+                    ray[steps - 1] = sq(from._col + DIR[dir][0] * steps,
+                                        from._row + DIR[dir][1] * steps);
+                    DIRECTION[from._index][ray[steps - 1]._index] =
+                        (byte) dir;
+                    DISTANCE[from._index][ray[steps - 1]._index] =
+                        (byte) steps;
+                }
+                RAYS[from._index][dir] = ray;
+            }
+        }
+    }
+
     /** My index position. */
     private final int _index;
 
@@ -177,7 +216,4 @@ final class Square {
     /** My String denotation. */
     private final String _str;
 
-    /**an additional variable. */
-    private static String[] colLetters;
-
 }
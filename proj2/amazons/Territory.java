@@ -0,0 +1,109 @@
+package amazons;
+
+import static amazons.Piece.*;
+
+/** A static evaluator for Amazons positions based on territory.  For each
+ *  side, it finds the fewest queen moves (queen distance) and the fewest
+ *  single steps (king distance) needed by any of that side's amazons to
+ *  reach each empty square, moving only through empty squares.  Each
+ *  empty square counts for the side that reaches it first under each
+ *  measure, and each side also gets credit for the number of squares its
+ *  amazons can move to directly (mobility).
+ *  <p>
+ *  The distances are found by a breadth-first search from all of a
+ *  side's amazons at once (see Board.distanceLayers), which yields one
+ *  bitboard for each distance.  An evaluator keeps these in arrays it
+ *  reuses between calls, so that evaluating allocates nothing.  It is
+ *  therefore not safe to share one evaluator among threads.
+ *  <p>
+ *  The weights of the three measures are fixed when an evaluator is
+ *  created, so that variants can be compared (see Tuner).
+ *  @author Tony Tu
+ */
+class Territory {
+
+    /** Default weight of a square closer to one side by queen
+     *  distance. */
+    static final int QUEEN_WEIGHT = 4;
+    /** Default weight of a square closer to one side by king distance. */
+    static final int KING_WEIGHT = 2;
+    /** Default weight of one square to which an amazon can move. */
+    static final int MOBILITY_WEIGHT = 1;
+    /** Number of weights. */
+    static final int WEIGHTS = 3;
+
+    /** An evaluator using the default weights. */
+    Territory() {
+        this(defaultWeights());
+    }
+
+    /** An evaluator using the queen-distance, king-distance, and mobility
+     *  weights WEIGHTS[0], WEIGHTS[1], and WEIGHTS[2].  A square closer
+     *  to one side by queen distance counts WEIGHTS[0] for that side,
+     *  and so on. */
+    Territory(int[] weights) {
+        _queenWeight = weights[0];
+        _kingWeight = weights[1];
+        _mobilityWeight = weights[2];
+    }
+
+    /** Return a new array of the default queen-distance, king-distance,
+     *  and mobility weights, in that order. */
+    static int[] defaultWeights() {
+        return new int[] { QUEEN_WEIGHT, KING_WEIGHT, MOBILITY_WEIGHT };
+    }
+
+    /** Return the value of BOARD to white: positive values favor white
+     *  and negative ones black.  BOARD must have no winner. */
+    int score(Board board) {
+        int queen = balance(board, true);
+        int king = balance(board, false);
+        int mobility =
+            board.queenMoveCount(WHITE) - board.queenMoveCount(BLACK);
+        return _queenWeight * queen + _kingWeight * king
+            + _mobilityWeight * mobility;
+    }
+
+    /** Return the number of squares of BOARD that white reaches in fewer
+     *  queen moves (if QUEEN) or single steps (otherwise) than black,
+     *  minus the number that black reaches first. */
+    private int balance(Board board, boolean queen) {
+        int whiteDepth =
+            board.distanceLayers(WHITE, queen, _whiteLo, _whiteHi);
+        int blackDepth =
+            board.distanceLayers(BLACK, queen, _blackLo, _blackHi);
+        long whiteLo, whiteHi, blackLo, blackHi;
+        whiteLo = whiteHi = blackLo = blackHi = 0;
+        int result = 0;
+        for (int d = 1; d <= Math.max(whiteDepth, blackDepth); d += 1) {
+            long layerLo = d <= whiteDepth ? _whiteLo[d] : 0,
+                layerHi = d <= whiteDepth ? _whiteHi[d] : 0;
+            blackLo |= d <= blackDepth ? _blackLo[d] : 0;
+            blackHi |= d <= blackDepth ? _blackHi[d] : 0;
+            result += Long.bitCount(layerLo & ~blackLo)
+                + Long.bitCount(layerHi & ~blackHi);
+            whiteLo |= layerLo;
+            whiteHi |= layerHi;
+            if (d <= blackDepth) {
+                result -= Long.bitCount(_blackLo[d] & ~whiteLo)
+                    + Long.bitCount(_blackHi[d] & ~whiteHi);
+            }
+        }
+        return result;
+    }
+
+    /** Number of squares on a board. */
+    private static final int SQUARES = Board.SIZE * Board.SIZE;
+
+    /** Weights of the queen-distance, king-distance, and mobility
+     *  measures. */
+    private final int _queenWeight, _kingWeight, _mobilityWeight;
+
+    /** The squares reached by white and black at each distance, as
+     *  filled in by Board.distanceLayers. */
+    private final long[]
+        _whiteLo = new long[SQUARES],
+        _whiteHi = new long[SQUARES],
+        _blackLo = new long[SQUARES],
+        _blackHi = new long[SQUARES];
+}
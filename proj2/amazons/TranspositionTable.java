@@ -0,0 +1,155 @@
+package amazons;
+
+/** A fixed-size table of search results, indexed by position hash (see
+ *  Board.hash).  The number of slots is a power of two, and each slot
+ *  holds one entry packed into two longs: a data word holding the search
+ *  depth, the kind of bound, the score, and the best move found, and a
+ *  check word that is the full hash XORed with the data word.
+ *  <p>
+ *  Several threads may share one table without locking.  Two threads
+ *  storing into the same slot at once may leave the check word of one
+ *  entry beside the data word of the other.  Since a probe accepts an
+ *  entry only if the check word XORed with the data word gives the hash
+ *  probed for, such a mixed entry just looks like a miss.
+ *  @author Tony Tu
+ */
+class TranspositionTable {
+
+    /** Bound kind: the stored score is the exact value. */
+    static final int EXACT = 1;
+    /** Bound kind: the true value is at least the stored score. */
+    static final int LOWER = 2;
+    /** Bound kind: the true value is at most the stored score. */
+    static final int UPPER = 3;
+
+    /** Value returned by probe when there is no entry for a position. */
+    static final long NO_ENTRY = 0;
+
+    /** Policies for deciding whether a new entry may overwrite the entry
+     *  already in its slot. */
+    enum Replacement {
+        /** Always overwrite. */
+        ALWAYS,
+        /** Keep the old entry if it is from the current search and was
+         *  searched deeper than the new one. */
+        DEPTH_PREFERRED
+    }
+
+    /** Number of bytes used by one slot. */
+    static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /** A table using about MEGABYTES megabytes (rounded down to a power
+     *  of two number of slots, but at least one slot), replacing entries
+     *  according to POLICY. */
+    TranspositionTable(int megabytes, Replacement policy) {
+        long slots =
+            Math.max(1, (long) megabytes * (1 << 20) / ENTRY_BYTES);
+        int size = Integer.highestOneBit((int) Math.min(slots, MAX_SLOTS));
+        _checks = new long[size];
+        _data = new long[size];
+        _mask = size - 1;
+        _policy = policy;
+    }
+
+    /** Return the number of slots in this table. */
+    int size() {
+        return _data.length;
+    }
+
+    /** Note that a new search is starting, so that entries from earlier
+     *  searches may be replaced in preference to current ones. */
+    void newSearch() {
+        _age = (_age + 1) & AGE_MASK;
+    }
+
+    /** Return the packed entry for the position with hash KEY, or
+     *  NO_ENTRY if there is none.  Use depth, bound, score, and move to
+     *  unpack the result. */
+    long probe(long key) {
+        int slot = (int) key & _mask;
+        long data = _data[slot];
+        if ((_checks[slot] ^ data) == key) {
+            return data;
+        }
+        return NO_ENTRY;
+    }
+
+    /** Record that the position with hash KEY was searched to DEPTH
+     *  levels, yielding SCORE, which is a bound of kind BOUND (EXACT,
+     *  LOWER, or UPPER), and that MOVE (an encoded move, or 0 if none)
+     *  was the best move found. */
+    void store(long key, int depth, int bound, int score, int move) {
+        int slot = (int) key & _mask;
+        long old = _data[slot];
+        if (_policy == Replacement.DEPTH_PREFERRED
+            && old != NO_ENTRY && (_checks[slot] ^ old) != key
+            && age(old) == _age && depth(old) > depth) {
+            return;
+        }
+        long data = pack(depth, bound, score, move, _age);
+        _checks[slot] = key ^ data;
+        _data[slot] = data;
+    }
+
+    /** Return the search depth recorded in the packed entry ENTRY. */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the bound kind recorded in the packed entry ENTRY. */
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the score recorded in the packed entry ENTRY. */
+    static int score(long entry) {
+        return (int) (entry >>> SCORE_SHIFT);
+    }
+
+    /** Return the encoded best move recorded in the packed entry ENTRY,
+     *  or 0 if none. */
+    static int move(long entry) {
+        return (int) entry & MOVE_MASK;
+    }
+
+    /** Return the search age recorded in the packed entry ENTRY. */
+    private static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT) & AGE_MASK;
+    }
+
+    /** Return DEPTH, BOUND, SCORE, MOVE, and AGE packed into one long.
+     *  BOUND is never 0, so neither is the result. */
+    private static long pack(int depth, int bound, int score, int move,
+                             int age) {
+        return ((long) score << SCORE_SHIFT)
+            | ((long) (age & AGE_MASK) << AGE_SHIFT)
+            | ((long) (depth & DEPTH_MASK) << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT)
+            | (move & MOVE_MASK);
+    }
+
+    /** Layout of a data word: bits 0-20 hold the move, 21-22 the bound
+     *  kind, 23-28 the depth, 29-31 the age, and 32-63 the score. */
+    private static final int
+        MOVE_MASK = (1 << 21) - 1,
+        BOUND_SHIFT = 21, BOUND_MASK = 3,
+        DEPTH_SHIFT = 23, DEPTH_MASK = 63,
+        AGE_SHIFT = 29, AGE_MASK = 7,
+        SCORE_SHIFT = 32;
+
+    /** Largest number of slots in a table. */
+    private static final int MAX_SLOTS = 1 << 30;
+
+    /** Hash of the position stored in each slot XORed with the slot's
+     *  data word. */
+    private final long[] _checks;
+    /** Packed data for each slot, or NO_ENTRY if the slot is empty. */
+    private final long[] _data;
+    /** Mask selecting a slot index from a hash. */
+    private final int _mask;
+    /** My replacement policy. */
+    private final Replacement _policy;
+    /** Age of the current search, used by DEPTH_PREFERRED.  Changed only
+     *  between searches. */
+    private int _age;
+}
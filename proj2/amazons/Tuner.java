@@ -0,0 +1,273 @@
+package amazons;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ucb.util.CommandArgs;
+
+import static amazons.Piece.*;
+
+/** An offline tuner for the weights of the territory evaluator (see
+ *  Territory), using simultaneous perturbation stochastic approximation
+ *  (SPSA).  Each round, every worker perturbs the current weights by
+ *  +C or -C in a random direction for each weight, and plays a pair of
+ *  fast self-play games, one with each color, between AIs using the two
+ *  perturbed weight vectors.  The difference in wins gives an estimate
+ *  of the gradient of playing strength along that direction.  The
+ *  weights then move along the average of the workers' estimates.
+ *  <p>
+ *  Games are played directly on Boards, without a Controller, and each
+ *  game has its own Boards and AIs, so the games of a round share no
+ *  mutable state and run in parallel.  Each game starts with a few
+ *  random moves so that games between the same players differ.
+ *  @author Tony Tu
+ */
+public class Tuner {
+
+    /** Default number of rounds. */
+    static final int DEFAULT_ROUNDS = 100;
+    /** Default search time per move, in milliseconds. */
+    static final long DEFAULT_TIME_LIMIT = 20;
+    /** Number of random moves at the start of each game. */
+    static final int OPENING_PLIES = 2;
+
+    /** Tune as directed by ARGS, which contain the name of the file to
+     *  receive the weights and the options --rounds=N (rounds of SPSA),
+     *  --time=MILLIS (search time per move), --depth=N (search depth
+     *  limit), --threads=N (games played at once, by default one per
+     *  processor), --seed=N (random seed), and --weights=FILE (starting
+     *  weights, by default Territory's). */
+    public static void main(String... args) {
+        CommandArgs options =
+            new CommandArgs("--rounds=(\\d+){0,1} --time=(\\d+){0,1} "
+                            + "--depth=(\\d+){0,1} --threads=(\\d+){0,1} "
+                            + "--seed=(\\d+){0,1} --weights={0,1} "
+                            + "--={1}",
+                            args);
+        if (!options.ok()) {
+            System.err.println("Usage: java amazons.Tuner"
+                               + " [--rounds=N] [--time=MILLIS]"
+                               + " [--depth=N] [--threads=N] [--seed=N]"
+                               + " [--weights=FILE] FILE");
+            System.exit(1);
+        }
+        int rounds = DEFAULT_ROUNDS;
+        if (options.contains("--rounds")) {
+            rounds = Integer.parseInt(options.getFirst("--rounds"));
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (options.contains("--threads")) {
+            threads =
+                Math.max(1, Integer.parseInt(options.getFirst("--threads")));
+        }
+        long seed = System.nanoTime();
+        if (options.contains("--seed")) {
+            seed = Long.parseLong(options.getFirst("--seed"));
+        }
+        AI template = new AI();
+        template.setTimeLimit(DEFAULT_TIME_LIMIT);
+        template.setTableSize(TABLE_MEGABYTES,
+                              TranspositionTable.Replacement.ALWAYS);
+        template.setEvalCacheSize(EVAL_MEGABYTES);
+        if (options.contains("--time")) {
+            template.setTimeLimit(Long.parseLong(options.getFirst("--time")));
+        }
+        if (options.contains("--depth")) {
+            template.setDepthLimit(
+                Integer.parseInt(options.getFirst("--depth")));
+        }
+        try {
+            int[] start = Territory.defaultWeights();
+            if (options.contains("--weights")) {
+                start = readWeights(options.getFirst("--weights"));
+            }
+            Tuner tuner = new Tuner(template, start, threads, seed);
+            for (int round = 1; round <= rounds; round += 1) {
+                tuner.round();
+                System.out.printf("round %d: %s%n", round,
+                                  Arrays.toString(tuner.weights()));
+            }
+            writeWeights(options.getFirst("--"), tuner.weights());
+        } catch (IOException excp) {
+            System.err.printf("Could not read or write weights: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Return the evaluator weights in the file named FILENAME, which
+     *  holds Territory.WEIGHTS integers separated by whitespace, as
+     *  written by writeWeights. */
+    static int[] readWeights(String fileName) throws IOException {
+        String[] words =
+            new String(Files.readAllBytes(Paths.get(fileName)))
+            .trim().split("\\s+");
+        if (words.length != Territory.WEIGHTS) {
+            throw new IOException("expected " + Territory.WEIGHTS
+                                  + " weights in " + fileName);
+        }
+        int[] weights = new int[Territory.WEIGHTS];
+        try {
+            for (int i = 0; i < weights.length; i += 1) {
+                weights[i] = Integer.parseInt(words[i]);
+            }
+        } catch (NumberFormatException excp) {
+            throw new IOException("bad weight in " + fileName);
+        }
+        return weights;
+    }
+
+    /** Write WEIGHTS to the file named FILENAME, in the format read by
+     *  readWeights. */
+    static void writeWeights(String fileName, int[] weights)
+        throws IOException {
+        try (PrintStream out = new PrintStream(fileName)) {
+            for (int i = 0; i < weights.length; i += 1) {
+                out.print(i == 0 ? "" : " ");
+                out.print(weights[i]);
+            }
+            out.println();
+        }
+    }
+
+    /** A tuner starting from the weights START, using AIs made from
+     *  TEMPLATE, and playing THREADS pairs of games at once in each
+     *  round.  Its random choices are determined by SEED. */
+    Tuner(AI template, int[] start, int threads, long seed) {
+        _template = template;
+        _theta = new double[start.length];
+        for (int i = 0; i < start.length; i += 1) {
+            _theta[i] = start[i];
+        }
+        _threads = threads;
+        _random = new Random(seed);
+    }
+
+    /** Return the current weights, rounded to integers. */
+    int[] weights() {
+        return round(_theta, null, 0);
+    }
+
+    /** Play one round of _threads pairs of games, and move the weights
+     *  along the resulting estimate of the gradient. */
+    void round() {
+        _round += 1;
+        double a = STEP / Math.pow(_round + STABILITY, ALPHA),
+            c = PERTURBATION / Math.pow(_round, GAMMA);
+        List<int[]> directions = new ArrayList<>();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int t = 0; t < _threads; t += 1) {
+            int[] delta = new int[_theta.length];
+            for (int i = 0; i < delta.length; i += 1) {
+                delta[i] = _random.nextBoolean() ? 1 : -1;
+            }
+            int[] plus = round(_theta, delta, c),
+                minus = round(_theta, delta, -c);
+            long seed = _random.nextLong();
+            directions.add(delta);
+            tasks.add(() -> match(plus, minus, seed));
+        }
+        if (_pool == null) {
+            _pool = Executors.newFixedThreadPool(_threads, (task) -> {
+                Thread thread = new Thread(task);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        double[] gradient = new double[_theta.length];
+        try {
+            List<Future<Integer>> results = _pool.invokeAll(tasks);
+            for (int t = 0; t < _threads; t += 1) {
+                int wins = results.get(t).get();
+                for (int i = 0; i < gradient.length; i += 1) {
+                    gradient[i] +=
+                        wins / (2 * c * directions.get(t)[i]) / _threads;
+                }
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        }
+        for (int i = 0; i < _theta.length; i += 1) {
+            _theta[i] = Math.max(0, _theta[i] + a * gradient[i]);
+        }
+    }
+
+    /** Return the number of games won by an AI using the weights PLUS
+     *  minus the number won by one using MINUS, in a pair of games in
+     *  which each plays each color once.  Both games start with the
+     *  same random moves, chosen using SEED. */
+    private int match(int[] plus, int[] minus, long seed) {
+        Board opening = new Board();
+        Random random = new Random(seed);
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < OPENING_PLIES; k += 1) {
+            int n = opening.legalMoves(opening.turn(), moves);
+            opening.makeMove(moves[random.nextInt(n)]);
+        }
+        return (play(opening, plus, minus) == WHITE ? 1 : -1)
+            - (play(opening, minus, plus) == WHITE ? 1 : -1);
+    }
+
+    /** Return the winner of a game continued from OPENING between an AI
+     *  using the weights WHITEWEIGHTS, playing white, and one using
+     *  BLACKWEIGHTS. */
+    private Piece play(Board opening, int[] whiteWeights,
+                       int[] blackWeights) {
+        AI white = (AI) _template.create(WHITE, null),
+            black = (AI) _template.create(BLACK, null);
+        white.setWeights(whiteWeights);
+        black.setWeights(blackWeights);
+        Board board = new Board(opening);
+        while (board.winner() == null) {
+            AI ai = board.turn() == WHITE ? white : black;
+            board.makeMove(ai.findMove(board).code());
+        }
+        return board.winner();
+    }
+
+    /** Return THETA + SCALE * DELTA (or just THETA, if DELTA is null),
+     *  rounded to non-negative integers. */
+    private static int[] round(double[] theta, int[] delta, double scale) {
+        int[] result = new int[theta.length];
+        for (int i = 0; i < theta.length; i += 1) {
+            double x = theta[i] + (delta == null ? 0 : scale * delta[i]);
+            result[i] = (int) Math.max(0, Math.round(x));
+        }
+        return result;
+    }
+
+    /** SPSA gain sequences: round k moves the weights by
+     *  STEP / (k + STABILITY)^ALPHA times the estimated gradient, and
+     *  perturbs them by PERTURBATION / k^GAMMA. */
+    private static final double
+        STEP = 2, STABILITY = 10, ALPHA = 0.602,
+        PERTURBATION = 1, GAMMA = 0.101;
+    /** Transposition table size of each AI, in megabytes. */
+    private static final int TABLE_MEGABYTES = 2;
+    /** Evaluation cache size of each AI, in megabytes. */
+    private static final int EVAL_MEGABYTES = 1;
+
+    /** Exemplar for the AIs playing each game. */
+    private final AI _template;
+    /** The current weights. */
+    private final double[] _theta;
+    /** Number of pairs of games played at once in each round. */
+    private final int _threads;
+    /** Source of perturbations and seeds for openings. */
+    private final Random _random;
+    /** Number of rounds played so far. */
+    private int _round;
+    /** Pool playing the games, created when first needed. */
+    private ExecutorService _pool;
+}
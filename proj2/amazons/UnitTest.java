@@ -2,6 +2,12 @@ package amazons;
 
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
 import static amazons.Piece.*;
 import static org.junit.Assert.*;
 import ucb.junit.textui;
@@ -146,6 +152,577 @@ public class UnitTest {
         assertTrue(Square.sq(7, 9).isQueenMove(Square.sq(0, 2)));
     }
 
+    /** Tests that the move buffer and the move iterator agree on the
+     *  initial board. */
+    @Test
+    public void testLegalMoveBuffer() {
+        Board b = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.legalMoves(WHITE, moves);
+        assertEquals(2176, n);
+        Iterator<Move> iter = b.legalMoves(WHITE);
+        int count = 0;
+        while (iter.hasNext()) {
+            Move m = iter.next();
+            assertTrue(b.isLegal(m));
+            count += 1;
+        }
+        assertEquals(n, count);
+        for (int i = 0; i < n; i += 1) {
+            assertTrue(b.isLegal(Square.sq(Move.from(moves[i])),
+                                 Square.sq(Move.to(moves[i])),
+                                 Square.sq(Move.spear(moves[i]))));
+        }
+    }
+
+    /** Tests that countLegalMoves agrees with the move buffer over the
+     *  course of a game. */
+    @Test
+    public void testCountLegalMoves() {
+        Board b = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        assertEquals(2176, b.countLegalMoves(WHITE));
+        for (int i = 0; b.winner() == null; i += 1) {
+            assertEquals(b.legalMoves(BLACK, moves),
+                         b.countLegalMoves(BLACK));
+            int n = b.legalMoves(b.turn(), moves);
+            assertEquals(n, b.countLegalMoves(b.turn()));
+            b.makeMove(moves[(i * 7919) % n]);
+        }
+    }
+
+    /** Tests that the Zobrist key is restored by undo, copied, and
+     *  independent of the order in which a position is reached. */
+    @Test
+    public void testHash() {
+        Board b = new Board();
+        long initial = b.hash();
+        Move m1 = Move.mv("d1-d4(f4)"), m2 = Move.mv("d10-d7(b7)"),
+            m3 = Move.mv("g1-g3(e3)");
+        b.makeMove(m1);
+        assertNotEquals(initial, b.hash());
+        b.makeMove(m2);
+        b.makeMove(m3);
+        long path1 = b.hash();
+        assertEquals(path1, new Board(b).hash());
+        b.undo();
+        b.undo();
+        b.undo();
+        assertEquals(initial, b.hash());
+        b.makeMove(Move.mv("d1-d4(e3)"));
+        b.makeMove(m2);
+        b.makeMove(Move.mv("g1-g3(f4)"));
+        assertEquals(path1, b.hash());
+        b.put(SPEAR, Square.sq("e5"));
+        assertNotEquals(path1, b.hash());
+        b.put(EMPTY, Square.sq("e5"));
+        assertEquals(path1, b.hash());
+        b.init();
+        assertEquals(initial, b.hash());
+    }
+
+    /** Tests that a copy shares history with, but is independent of, the
+     *  board it was copied from. */
+    @Test
+    public void testCopyIndependence() {
+        Board b = new Board();
+        b.makeMove(Move.mv("d1-d4(f4)"));
+        b.makeMove(Move.mv("d10-d7(b7)"));
+        Board c = new Board(b);
+        assertEquals(b.toString(), c.toString());
+        c.undo();
+        c.makeMove(Move.mv("g10-g7(g5)"));
+        assertEquals(2, b.numMoves());
+        assertEquals(BLACK, b.get(Square.sq("d7")));
+        b.undo();
+        b.undo();
+        assertEquals(INIT_BOARD_STATE, b.toString());
+        c.undo();
+        c.undo();
+        assertEquals(INIT_BOARD_STATE, c.toString());
+        assertEquals(b.hash(), c.hash());
+    }
+
+    /** Tests that two threads generating moves from one Board at the
+     *  same time both see the moves it has when read alone. */
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        Board b = randomPosition(new Random(6), 20);
+        int[] expected = new int[Board.MAX_MOVES];
+        int count = b.legalMoves(b.turn(), expected);
+        boolean[] agreed = new boolean[2];
+        Thread[] readers = new Thread[2];
+        for (int t = 0; t < 2; t += 1) {
+            int id = t;
+            readers[t] = new Thread(() -> {
+                int[] moves = new int[Board.MAX_MOVES];
+                boolean same = true;
+                for (int r = 0; r < READ_ROUNDS && same; r += 1) {
+                    same = b.legalMoves(b.turn(), moves) == count
+                        && Arrays.equals(moves, 0, count, expected, 0, count);
+                }
+                agreed[id] = same;
+            });
+            readers[t].start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(agreed[0] && agreed[1]);
+    }
+
+    /** Tests winner on a board where White's only queen is trapped, and
+     *  that the cached result is discarded when the board changes. */
+    @Test
+    public void testWinner() {
+        assertNull(new Board().winner());
+        Board b = emptyBoard();
+        b.put(WHITE, Square.sq("a1"));
+        b.put(BLACK, Square.sq("j10"));
+        b.put(SPEAR, Square.sq("a2"));
+        b.put(SPEAR, Square.sq("b1"));
+        b.put(SPEAR, Square.sq("b2"));
+        assertEquals(BLACK, b.winner());
+        assertFalse(b.hasMove(WHITE));
+        assertTrue(b.hasMove(BLACK));
+        b.put(EMPTY, Square.sq("b2"));
+        assertNull(b.winner());
+    }
+
+    /** Tests the territory evaluator on a symmetric position and on one
+     *  where white is walled into a corner. */
+    @Test
+    public void testTerritory() {
+        Territory territory = new Territory();
+        assertEquals(0, territory.score(new Board()));
+        Board b = emptyBoard();
+        b.put(WHITE, Square.sq("a1"));
+        b.put(BLACK, Square.sq("j10"));
+        b.put(SPEAR, Square.sq("a3"));
+        b.put(SPEAR, Square.sq("b3"));
+        b.put(SPEAR, Square.sq("c3"));
+        b.put(SPEAR, Square.sq("c2"));
+        b.put(SPEAR, Square.sq("c1"));
+        assertEquals(-(Territory.QUEEN_WEIGHT + Territory.KING_WEIGHT)
+                     * (100 - 10 - 3) + Territory.MOBILITY_WEIGHT * (3 - 24),
+                     territory.score(b));
+    }
+
+    /** Tests region analysis on a board split by a wall of spears. */
+    @Test
+    public void testRegions() {
+        Regions regions = new Regions();
+        regions.analyze(new Board());
+        assertEquals(1, regions.contestedCount());
+        Board b = emptyBoard();
+        for (int row = 0; row < Board.SIZE; row += 1) {
+            b.put(SPEAR, Square.sq(5, row));
+        }
+        b.put(WHITE, Square.sq("a1"));
+        b.put(BLACK, Square.sq("j10"));
+        b.put(BLACK, Square.sq("e10"));
+        int[] regionOf = new int[Board.SIZE * Board.SIZE];
+        assertEquals(2, b.regions(regionOf));
+        assertEquals(-1, regionOf[Square.sq("f5").index()]);
+        assertEquals(regionOf[Square.sq("a1").index()],
+                     regionOf[Square.sq("e10").index()]);
+        regions.analyze(b);
+        assertEquals(1, regions.contestedCount());
+        assertEquals(1, regions.ownedCount());
+        assertEquals(39, regions.fillable(BLACK));
+        assertEquals(0, regions.fillable(WHITE));
+        b.put(EMPTY, Square.sq("e10"));
+        b.put(SPEAR, Square.sq("a3"));
+        b.put(SPEAR, Square.sq("b3"));
+        b.put(SPEAR, Square.sq("c3"));
+        b.put(SPEAR, Square.sq("c2"));
+        b.put(SPEAR, Square.sq("c1"));
+        regions.analyze(b);
+        assertEquals(0, regions.contestedCount());
+        assertEquals(3, regions.fillable(WHITE));
+        assertEquals(3, regions.exactFillable(b, WHITE));
+        assertEquals(39, regions.fillable(BLACK));
+    }
+
+    /** Tests that sealed positions get decided values only when the
+     *  bounds on each side's moves prove the outcome.  White's region
+     *  has two empty squares but room for only one move. */
+    @Test
+    public void testDecidedValue() {
+        Board b = emptyBoard();
+        for (int k = 0; k < Board.SIZE * Board.SIZE; k += 1) {
+            b.put(SPEAR, Square.sq(k));
+        }
+        b.put(WHITE, Square.sq("b2"));
+        b.put(EMPTY, Square.sq("a1"));
+        b.put(EMPTY, Square.sq("c1"));
+        b.put(BLACK, Square.sq("j10"));
+        b.put(EMPTY, Square.sq("i10"));
+        Regions regions = new Regions();
+        regions.analyze(b);
+        assertEquals(0, regions.contestedCount());
+        assertEquals(2, regions.fillable(WHITE));
+        assertEquals(1, regions.surelyFillable(b, WHITE));
+        AI ai = new AI(WHITE, null);
+        assertTrue(Math.abs(ai.staticScore(b)) < AI.DECIDED_VALUE);
+        b.put(EMPTY, Square.sq("h10"));
+        b.put(EMPTY, Square.sq("g10"));
+        assertTrue(ai.staticScore(b) < -AI.DECIDED_VALUE);
+    }
+
+    /** Tests that a search limited to the contested regions still finds
+     *  a tempo move in white's own region when every move in the
+     *  contested region loses. */
+    @Test
+    public void testTempoMove() {
+        Board b = emptyBoard();
+        for (int k = 0; k < Board.SIZE * Board.SIZE; k += 1) {
+            b.put(SPEAR, Square.sq(k));
+        }
+        for (String sq : new String[] { "f9", "h9", "f8", "i8", "f7",
+                                        "b2", "b1" }) {
+            b.put(EMPTY, Square.sq(sq));
+        }
+        b.put(BLACK, Square.sq("g8"));
+        b.put(WHITE, Square.sq("h7"));
+        b.put(WHITE, Square.sq("a2"));
+        AI ai = searcher(WHITE, 8);
+        Move move = ai.findMove(b);
+        assertEquals(Square.sq("a2"), move.from());
+        assertTrue(ai.lastScore() > AI.DECIDED_VALUE);
+    }
+
+    /** Tests that an AI ponders after its move, stops when told of its
+     *  opponent's reply or when asked for its next move, and then still
+     *  makes legal moves. */
+    @Test
+    public void testPondering() {
+        AI template = new AI();
+        template.setTimeLimit(PONDER_TIME);
+        template.setPondering(true);
+        Controller controller = controller(template);
+        Board b = controller.board();
+        AI ai = (AI) template.create(WHITE, controller);
+        int[] replies = new int[Board.MAX_MOVES];
+        for (int k = 0; k < 2; k += 1) {
+            Move move = Move.mv(ai.myMove());
+            assertTrue(b.isLegal(move));
+            b.makeMove(move);
+            assertTrue(ai.pondering());
+            b.legalMoves(BLACK, replies);
+            Move reply = Move.mv(replies[0]);
+            b.makeMove(reply);
+            if (k == 0) {
+                ai.notifyMove(reply);
+                assertFalse(ai.pondering());
+            }
+        }
+        assertTrue(b.isLegal(Move.mv(ai.myMove())));
+        ai.stop();
+        assertFalse(ai.pondering());
+    }
+
+    /** Tests that MCTS players seeded alike through their Controllers,
+     *  and limited only by iterations, choose the same legal move and
+     *  run exactly the iterations allowed, with one thread or two. */
+    @Test
+    public void testMCTSSeed() {
+        Board b = randomPosition(new Random(4), 10);
+        for (int threads = 1; threads <= 2; threads += 1) {
+            MCTSPlayer template = new MCTSPlayer();
+            template.setIterationLimit(MCTS_ITERATIONS);
+            template.setTimeLimit(0);
+            template.setThreads(threads);
+            String[] moves = new String[2];
+            for (int i = 0; i < 2; i += 1) {
+                Controller controller = controller(template);
+                controller.board().copy(b);
+                controller.setSeed(MCTS_SEED);
+                Player player = template.create(b.turn(), controller);
+                moves[i] = player.myMove();
+                assertEquals(MCTS_ITERATIONS,
+                             ((MCTSPlayer) player).nodeCount());
+            }
+            assertEquals(moves[0], moves[1]);
+            assertTrue(b.isLegal(Move.mv(moves[0])));
+        }
+    }
+
+    /** Tests that move ordering by killer moves and history scores
+     *  leaves the root value found by searches to a fixed depth the
+     *  same as that of a plain full-width search, including when the
+     *  ordering tables carry over from the searches of earlier
+     *  positions. */
+    @Test
+    public void testMoveOrdering() {
+        Random random = new Random(5);
+        AI ai = searcher(WHITE, 2);
+        for (int plies = 40; plies <= 52; plies += 4) {
+            Board b = randomPosition(random, plies);
+            assertEquals(0, ownedCount(b));
+            ai.findMove(b);
+            assertEquals(plainValue(b, 2, ai), ai.lastScore());
+        }
+    }
+
+    /** Tests that generating queen moves and spear throws in two stages,
+     *  with no limit on the spear throws searched, finds the same root
+     *  value as a plain full-width search to the same depth, and that
+     *  a limit on the spear throws still yields a legal move. */
+    @Test
+    public void testTwoStage() {
+        Random random = new Random(5);
+        for (int plies = 40; plies <= 52; plies += 4) {
+            Board b = randomPosition(random, plies);
+            AI ai = searcher(b.turn(), 2);
+            ai.setTwoStage(true, 0);
+            ai.findMove(b);
+            assertEquals(plainValue(b, 2, ai), ai.lastScore());
+            AI limited = searcher(b.turn(), 2);
+            limited.setTwoStage(true, 1);
+            assertTrue(b.isLegal(limited.findMove(b)));
+        }
+    }
+
+    /** Tests that a lazy SMP search, with helper threads sharing the
+     *  transposition table, finds the same root value as a plain
+     *  full-width search to the same depth, returns a legal move, and
+     *  leaves no helper running once it returns. */
+    @Test
+    public void testLazySMP() throws InterruptedException {
+        Random random = new Random(5);
+        for (int plies = 40; plies <= 52; plies += 4) {
+            Board b = randomPosition(random, plies);
+            AI ai = searcher(b.turn(), 2);
+            ai.setThreads(3, AI.Parallelism.LAZY_SMP);
+            Move move = ai.findMove(b);
+            assertTrue(b.isLegal(move));
+            assertEquals(plainValue(b, 2, ai), ai.lastScore());
+            long nodes = ai.nodeCount();
+            Thread.sleep(HELPER_WAIT);
+            assertEquals(nodes, ai.nodeCount());
+        }
+    }
+
+    /** Tests that an opening book file returns the moves written to it. */
+    @Test
+    public void testOpeningBook() throws IOException {
+        File file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+        long[] keys = { 42, -7, 1L << 40 };
+        int[] moves = { 1, 2, 3 };
+        int[] scores = { -10, 20, 30 };
+        OpeningBook.write(file.getPath(), keys, moves, scores, 3);
+        OpeningBook book = new OpeningBook(file.getPath());
+        assertEquals(3, book.size());
+        for (int i = 0; i < 3; i += 1) {
+            assertEquals(moves[i], book.move(keys[i]));
+            assertEquals(scores[i], book.score(keys[i]));
+        }
+        assertEquals(0, book.move(0));
+    }
+
+    /** Tests that the evaluation cache returns stored scores, replaces
+     *  the entry in a slot, and counts hits and misses. */
+    @Test
+    public void testEvalCache() {
+        EvalCache cache = new EvalCache(1);
+        long key = 12345, other = key + cache.size();
+        assertEquals(EvalCache.NO_ENTRY, cache.probe(key));
+        cache.store(key, -17);
+        assertEquals(-17, EvalCache.score(cache.probe(key)));
+        cache.store(other, 0);
+        assertEquals(0, EvalCache.score(cache.probe(other)));
+        assertEquals(EvalCache.NO_ENTRY, cache.probe(key));
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    /** Tests packing entries into a transposition table, looking them
+     *  up, and the replacement policies. */
+    @Test
+    public void testTranspositionTable() {
+        TranspositionTable table =
+            new TranspositionTable(1, TranspositionTable.Replacement.ALWAYS);
+        long key = 12345, other = key + table.size();
+        int move = Move.mv("d1-d7(g7)").code();
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(key));
+        table.store(key, 5, TranspositionTable.LOWER, -1234, move);
+        long entry = table.probe(key);
+        assertEquals(5, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER,
+                     TranspositionTable.bound(entry));
+        assertEquals(-1234, TranspositionTable.score(entry));
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(other));
+        table.store(other, 1, TranspositionTable.UPPER,
+                    Integer.MIN_VALUE + 1, 0);
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(key));
+        entry = table.probe(other);
+        assertEquals(1, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.UPPER,
+                     TranspositionTable.bound(entry));
+        assertEquals(Integer.MIN_VALUE + 1, TranspositionTable.score(entry));
+        assertEquals(0, TranspositionTable.move(entry));
+
+        TranspositionTable deep = new TranspositionTable(
+            1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+        deep.store(key, 6, TranspositionTable.EXACT, Integer.MAX_VALUE,
+                   move);
+        deep.store(other, 3, TranspositionTable.EXACT, 20, 0);
+        assertEquals(TranspositionTable.NO_ENTRY, deep.probe(other));
+        assertEquals(Integer.MAX_VALUE,
+                     TranspositionTable.score(deep.probe(key)));
+        deep.store(key, 2, TranspositionTable.EXACT, 30, 0);
+        assertEquals(2, TranspositionTable.depth(deep.probe(key)));
+        deep.store(key, 6, TranspositionTable.EXACT, 10, move);
+        deep.newSearch();
+        deep.store(other, 3, TranspositionTable.EXACT, 20, 0);
+        assertEquals(TranspositionTable.NO_ENTRY, deep.probe(key));
+        assertEquals(20, TranspositionTable.score(deep.probe(other)));
+    }
+
+    /** Tests the Elo differences given by match scores. */
+    @Test
+    public void testElo() {
+        assertEquals(0, MatchRunner.elo(0.5), 1e-9);
+        assertEquals(400, MatchRunner.elo(10.0 / 11), 1e-9);
+        assertEquals(-MatchRunner.elo(0.75), MatchRunner.elo(0.25), 1e-9);
+        assertTrue(Double.isInfinite(MatchRunner.elo(1)));
+    }
+
+    /** Tests the confidence interval of a match score, including when
+     *  one player won every game. */
+    @Test
+    public void testScoreBound() {
+        assertEquals(1, MatchRunner.scoreBound(50, 100, -1)
+                     + MatchRunner.scoreBound(50, 100, 1), 1e-9);
+        assertEquals(0.4038, MatchRunner.scoreBound(50, 100, -1), 1e-4);
+        assertEquals(1, MatchRunner.scoreBound(10, 10, 1), 1e-9);
+        assertEquals(0.7225, MatchRunner.scoreBound(10, 10, -1), 1e-4);
+        assertEquals(0, MatchRunner.scoreBound(0, 10, -1), 1e-9);
+        assertEquals(1 - MatchRunner.scoreBound(10, 10, -1),
+                     MatchRunner.scoreBound(0, 10, 1), 1e-9);
+    }
+
+    /** Tests that splitting the root moves among threads chooses a move
+     *  worth as much as the one a single thread chooses, and worth the
+     *  value it reports, on fixed seeded positions. */
+    @Test
+    public void testSplitRoot() {
+        Random random = new Random(1);
+        for (int plies = 20; plies <= 40; plies += 10) {
+            Board b = randomPosition(random, plies);
+            AI single = searcher(b.turn(), 2);
+            AI split = searcher(b.turn(), 2);
+            split.setThreads(4, AI.Parallelism.ROOT_SPLIT);
+            Move singleMove = single.findMove(b),
+                splitMove = split.findMove(b);
+            assertEquals(single.lastScore(), split.lastScore());
+            assertEquals(moveValue(b, singleMove), moveValue(b, splitMove));
+            assertEquals(split.lastScore(), moveValue(b, splitMove));
+        }
+    }
+
+    /** Tests that principal variation search and aspiration windows,
+     *  including windows narrow enough to fail, find the same root
+     *  value as plain alpha-beta search on fixed seeded positions. */
+    @Test
+    public void testPrincipalVariation() {
+        Random random = new Random(3);
+        for (int plies = 40; plies <= 55; plies += 5) {
+            Board b = randomPosition(random, plies);
+            AI plain = searcher(b.turn(), 3);
+            plain.setPrincipalVariation(false, 0);
+            plain.findMove(b);
+            for (int aspiration : new int[] { 0, 1, AI.DEFAULT_ASPIRATION }) {
+                AI pvs = searcher(b.turn(), 3);
+                pvs.setPrincipalVariation(true, aspiration);
+                pvs.findMove(b);
+                assertEquals(plain.lastScore(), pvs.lastScore());
+            }
+        }
+    }
+
+    /** Return the position reached from the initial one by PLIES moves
+     *  chosen using RANDOM. */
+    private static Board randomPosition(Random random, int plies) {
+        Board b = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < plies; k += 1) {
+            int n = b.legalMoves(b.turn(), moves);
+            b.makeMove(moves[random.nextInt(n)]);
+        }
+        return b;
+    }
+
+    /** Return the value of B searched to DEPTH levels by plain minimax
+     *  over all legal moves, using the static values of AI at the
+     *  leaves. */
+    private static int plainValue(Board b, int depth, AI ai) {
+        if (depth == 0 || b.winner() != null) {
+            return ai.staticScore(b);
+        }
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.legalMoves(b.turn(), moves);
+        int best = b.turn() == WHITE ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int i = 0; i < n; i += 1) {
+            b.makeMove(moves[i]);
+            int value = plainValue(b, depth - 1, ai);
+            b.undo();
+            best = b.turn() == WHITE ? Math.max(best, value)
+                : Math.min(best, value);
+        }
+        return best;
+    }
+
+    /** Return the number of regions of B that belong to one side, so
+     *  that a search from B is not limited to contested regions. */
+    private static int ownedCount(Board b) {
+        Regions regions = new Regions();
+        regions.analyze(b);
+        return regions.ownedCount();
+    }
+
+    /** Return a Controller whose automated players are made from
+     *  AUTOPLAYERTEMPLATE, and which reports nothing. */
+    private static Controller controller(Player autoPlayerTemplate) {
+        Reporter quiet = new Reporter() {
+            public void reportError(String format, Object... args) { }
+            public void reportNote(String format, Object... args) { }
+            public void reportMove(Move move) { }
+        };
+        return new Controller(new NullView(), null, quiet, new TextPlayer(),
+                              autoPlayerTemplate);
+    }
+
+    /** Return a board with no amazons or spears, white to move. */
+    private static Board emptyBoard() {
+        Board b = new Board();
+        for (int k = 0; k < Board.SIZE * Board.SIZE; k += 1) {
+            b.put(EMPTY, Square.sq(k));
+        }
+        return b;
+    }
+
+    /** Return an AI for SIDE that searches exactly DEPTH levels. */
+    private static AI searcher(Piece side, int depth) {
+        AI ai = new AI(side, null);
+        ai.setTimeLimit(SEARCH_TIME);
+        ai.setDepthLimit(depth);
+        return ai;
+    }
+
+    /** Return the value found by a search one level deep of the position
+     *  after MOVE on B. */
+    private static int moveValue(Board b, Move move) {
+        Board child = new Board(b);
+        child.makeMove(move);
+        AI ai = searcher(child.turn(), 1);
+        ai.findMove(child);
+        return ai.lastScore();
+    }
+
     /** Tests toString for initial board state and a smiling board state. :) */
     @Test
     public void testToString() {
@@ -183,6 +760,19 @@ public class UnitTest {
         b.put(WHITE, Square.sq(7, 3));
     }
 
+    /** Time limit in milliseconds for searches limited by depth. */
+    static final long SEARCH_TIME = 3600000;
+    /** Time limit in milliseconds for moves in testPondering. */
+    static final long PONDER_TIME = 100;
+    /** Move generations per thread in testConcurrentReads. */
+    static final int READ_ROUNDS = 20000;
+    /** Milliseconds testLazySMP waits for stray helper threads. */
+    static final long HELPER_WAIT = 50;
+    /** Iterations per move in testMCTSSeed. */
+    static final int MCTS_ITERATIONS = 2000;
+    /** Random seed given to the Controllers in testMCTSSeed. */
+    static final long MCTS_SEED = 61;
+
     static final String INIT_BOARD_STATE =
             "   - - - B - - B - - -\n"
             + "   - - - - - - - - - -\n"
@@ -0,0 +1,173 @@
+package amazons;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** JMH micro-benchmarks of the engine's hot paths: move generation,
+ *  legality checks, board copying, making and undoing moves, move
+ *  parsing, square geometry, and static evaluation.  Each runs on a
+ *  fixed opening, middlegame, and endgame position (see Positions).
+ *  Run them with 'make bench' in the amazons directory.
+ *  <p>
+ *  The benchmarks are in package amazons so that they can reach its
+ *  package-private classes, but live outside its directory so that the
+ *  ordinary build does not need JMH.
+ *  @author Tony Tu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Benchmarks {
+
+    /** A fixed position for each game phase, and data derived from it
+     *  that the benchmarks use without measuring. */
+    @State(Scope.Thread)
+    public static class Positions {
+
+        /** Game phase of the position: "opening", "middlegame", or
+         *  "endgame". */
+        @Param({ "opening", "middlegame", "endgame" })
+        public String phase;
+
+        /** Set up the position for phase. */
+        @Setup(Level.Trial)
+        public void setUp() {
+            int plies;
+            switch (phase) {
+            case "opening":
+                plies = OPENING_PLIES;
+                break;
+            case "middlegame":
+                plies = MIDDLEGAME_PLIES;
+                break;
+            default:
+                plies = ENDGAME_PLIES;
+                break;
+            }
+            board = new Board();
+            Random random = new Random(SEED);
+            for (int k = 0; k < plies && board.winner() == null; k += 1) {
+                int n = board.legalMoves(board.turn(), moves);
+                board.makeMove(moves[random.nextInt(n)]);
+            }
+            count = board.legalMoves(board.turn(), moves);
+            move = Move.mv(moves[count / 2]);
+            text = move.toString();
+            from = move.from();
+            to = move.to();
+            scratch = new Board();
+            ai = new AI(board.turn(), null);
+        }
+
+        /** The position. */
+        Board board;
+        /** A board for copying into. */
+        Board scratch;
+        /** The legal moves from board, in moves[0 .. count - 1]. */
+        int[] moves = new int[Board.MAX_MOVES];
+        /** Number of legal moves from board. */
+        int count;
+        /** A legal move from board. */
+        Move move;
+        /** Text of move. */
+        String text;
+        /** Squares from and to which move moves a queen. */
+        Square from, to;
+        /** An AI whose evaluator is measured. */
+        AI ai;
+    }
+
+    /** Enumerate all legal moves into a buffer. */
+    @Benchmark
+    public int legalMoves(Positions p) {
+        return p.board.legalMoves(p.board.turn(), p.moves);
+    }
+
+    /** Walk all legal moves with the Move iterator. */
+    @Benchmark
+    public void legalMoveIterator(Positions p, Blackhole sink) {
+        Iterator<Move> moves = p.board.legalMoves(p.board.turn());
+        while (moves.hasNext()) {
+            sink.consume(moves.next());
+        }
+    }
+
+    /** Count all legal moves without generating them. */
+    @Benchmark
+    public int countLegalMoves(Positions p) {
+        return p.board.countLegalMoves(p.board.turn());
+    }
+
+    /** Walk the squares reachable from a queen. */
+    @Benchmark
+    public void reachableFrom(Positions p, Blackhole sink) {
+        Iterator<Square> squares = p.board.reachableFrom(p.from, null);
+        while (squares.hasNext()) {
+            sink.consume(squares.next());
+        }
+    }
+
+    /** Check a legal move. */
+    @Benchmark
+    public boolean isLegal(Positions p) {
+        return p.board.isLegal(p.move);
+    }
+
+    /** Copy the position. */
+    @Benchmark
+    public long copy(Positions p) {
+        p.scratch.copy(p.board);
+        return p.scratch.hash();
+    }
+
+    /** Make and undo a legal move. */
+    @Benchmark
+    public long makeUndo(Positions p) {
+        p.board.makeMove(p.move);
+        long hash = p.board.hash();
+        p.board.undo();
+        return hash;
+    }
+
+    /** Parse a move's text. */
+    @Benchmark
+    public void parseMove(Positions p, Blackhole sink) {
+        sink.consume(Move.mv(p.text));
+    }
+
+    /** Find a queen move's direction and step along it again. */
+    @Benchmark
+    public void queenMove(Positions p, Blackhole sink) {
+        int dir = p.from.direction(p.to);
+        sink.consume(p.from.queenMove(dir, p.from.distance(p.to)));
+    }
+
+    /** Evaluate the position as at a search leaf. */
+    @Benchmark
+    public int staticScore(Positions p) {
+        return p.ai.staticScore(p.board);
+    }
+
+    /** Seed of the random moves that reach each position. */
+    private static final long SEED = 61;
+    /** Random plies from the initial position to each position. */
+    private static final int
+        OPENING_PLIES = 4, MIDDLEGAME_PLIES = 30, ENDGAME_PLIES = 60;
+}